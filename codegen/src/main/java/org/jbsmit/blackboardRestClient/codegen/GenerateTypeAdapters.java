@@ -0,0 +1,17 @@
+package org.jbsmit.blackboardRestClient.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Put on a package (in its package-info.java) to generate a Gson TypeAdapter for every class and enum in the
+ * package, including nested ones, and a TypeAdapterFactory named after the package that registers them all.
+ *
+ * Classes need a no-argument constructor, and a getter and setter for every non-static, non-transient field.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.PACKAGE)
+public @interface GenerateTypeAdapters {
+}
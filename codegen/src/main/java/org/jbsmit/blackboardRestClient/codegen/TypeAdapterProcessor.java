@@ -0,0 +1,417 @@
+package org.jbsmit.blackboardRestClient.codegen;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates reflection-free Gson TypeAdapters for the classes and enums of packages annotated with
+ * {@link GenerateTypeAdapters}.
+ *
+ * Fields are read and written through their getters and setters, in declaration order. Strings, primitives, their
+ * boxed types and BigDecimal are read and written inline; the adapters of all other field types are looked up from
+ * Gson once, when the adapter is created.
+ */
+@SupportedAnnotationTypes("org.jbsmit.blackboardRestClient.codegen.GenerateTypeAdapters")
+public class TypeAdapterProcessor extends AbstractProcessor {
+    private static final String GENERATED = "@Generated(\"" + TypeAdapterProcessor.class.getName() + "\")";
+
+    private static final Map<String, String> INLINE_READERS = Map.ofEntries(
+            Map.entry("java.lang.String", "readString"),
+            Map.entry("boolean", "readBoolean"),
+            Map.entry("java.lang.Boolean", "readBoolean"),
+            Map.entry("int", "readInteger"),
+            Map.entry("java.lang.Integer", "readInteger"),
+            Map.entry("long", "readLong"),
+            Map.entry("java.lang.Long", "readLong"),
+            Map.entry("double", "readDouble"),
+            Map.entry("java.lang.Double", "readDouble"),
+            Map.entry("java.math.BigDecimal", "readBigDecimal"));
+
+    private static class Property {
+        private final String name;
+        private final TypeMirror type;
+        private final String getter;
+        private final String setter;
+
+        private Property(String name, TypeMirror type, String getter, String setter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        private boolean isPrimitive() {
+            return type.getKind().isPrimitive();
+        }
+
+        private boolean isInline() {
+            return INLINE_READERS.containsKey(type.toString());
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (var element : roundEnv.getElementsAnnotatedWith(GenerateTypeAdapters.class)) {
+            if (element.getKind() == ElementKind.PACKAGE) {
+                try {
+                    generatePackage((PackageElement) element);
+                } catch (IOException e) {
+                    error(element, "Could not write type adapters: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generatePackage(PackageElement packageElement) throws IOException {
+        var types = new ArrayList<TypeElement>();
+        collectTypes(packageElement.getEnclosedElements(), types);
+
+        for (var type : types) {
+            if (type.getKind() == ElementKind.ENUM) {
+                generateEnumAdapter(packageElement, type);
+            } else {
+                generateClassAdapter(packageElement, type);
+            }
+        }
+        generateFactory(packageElement, types);
+    }
+
+    private void collectTypes(List<? extends Element> elements, List<TypeElement> types) {
+        for (var element : elements) {
+            if (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.ENUM) {
+                continue;
+            }
+            var type = (TypeElement) element;
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            types.add(type);
+            collectTypes(type.getEnclosedElements(), types);
+        }
+    }
+
+    private void generateClassAdapter(PackageElement packageElement, TypeElement type) throws IOException {
+        if (!hasNoArgumentConstructor(type)) {
+            error(type, "A no-argument constructor is needed to generate a type adapter");
+            return;
+        }
+        if (type.getSuperclass().getKind() != TypeKind.NONE
+                && !type.getSuperclass().toString().equals("java.lang.Object")) {
+            error(type, "Type adapters can only be generated for classes without a superclass");
+            return;
+        }
+
+        var properties = findProperties(type);
+        var typeName = sourceName(type);
+        var adapterName = adapterName(type);
+        var factoryName = factoryName(packageElement);
+
+        try (var out = openSourceFile(packageElement, adapterName, type)) {
+            out.println("final class " + adapterName + " extends TypeAdapter<" + typeName + "> {");
+            for (var property : properties) {
+                if (!property.isInline()) {
+                    out.println("    private final TypeAdapter<" + property.type + "> " + property.name + "Adapter;");
+                }
+            }
+            out.println();
+            out.println("    " + adapterName + "(Gson gson) {");
+            for (var property : properties) {
+                if (!property.isInline()) {
+                    out.println("        this." + property.name + "Adapter = gson.getAdapter(" + typeToken(property.type) + ");");
+                }
+            }
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public void write(JsonWriter out, " + typeName + " value) throws IOException {");
+            out.println("        if (value == null) {");
+            out.println("            out.nullValue();");
+            out.println("            return;");
+            out.println("        }");
+            out.println("        out.beginObject();");
+            for (var property : properties) {
+                var getter = "value." + property.getter + "()";
+                if (property.isPrimitive()) {
+                    out.println("        out.name(\"" + property.name + "\").value(" + getter + ");");
+                } else if (property.isInline()) {
+                    out.println("        if (" + getter + " != null) {");
+                    out.println("            out.name(\"" + property.name + "\").value(" + getter + ");");
+                    out.println("        }");
+                } else {
+                    out.println("        if (" + getter + " != null) {");
+                    out.println("            out.name(\"" + property.name + "\");");
+                    out.println("            " + property.name + "Adapter.write(out, " + getter + ");");
+                    out.println("        }");
+                }
+            }
+            out.println("        out.endObject();");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public " + typeName + " read(JsonReader in) throws IOException {");
+            out.println("        if (in.peek() == JsonToken.NULL) {");
+            out.println("            in.nextNull();");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("        var value = new " + typeName + "();");
+            out.println("        in.beginObject();");
+            out.println("        while (in.hasNext()) {");
+            out.println("            switch (in.nextName()) {");
+            for (var property : properties) {
+                out.println("                case \"" + property.name + "\": {");
+                if (property.isPrimitive()) {
+                    var reader = INLINE_READERS.get(property.type.toString());
+                    var local = property.name + "Value";
+                    out.println("                    var " + local + " = " + factoryName + "." + reader + "(in);");
+                    out.println("                    if (" + local + " != null) {");
+                    out.println("                        value." + property.setter + "(" + local + ");");
+                    out.println("                    }");
+                } else if (property.isInline()) {
+                    var reader = INLINE_READERS.get(property.type.toString());
+                    out.println("                    value." + property.setter + "(" + factoryName + "." + reader + "(in));");
+                } else {
+                    out.println("                    value." + property.setter + "(" + property.name + "Adapter.read(in));");
+                }
+                out.println("                    break;");
+                out.println("                }");
+            }
+            out.println("                default:");
+            out.println("                    in.skipValue();");
+            out.println("            }");
+            out.println("        }");
+            out.println("        in.endObject();");
+            out.println("        return value;");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void generateEnumAdapter(PackageElement packageElement, TypeElement type) throws IOException {
+        var typeName = sourceName(type);
+        var adapterName = adapterName(type);
+
+        try (var out = openSourceFile(packageElement, adapterName, type)) {
+            out.println("final class " + adapterName + " extends TypeAdapter<" + typeName + "> {");
+            out.println("    @Override");
+            out.println("    public void write(JsonWriter out, " + typeName + " value) throws IOException {");
+            out.println("        out.value(value == null ? null : value.name());");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + typeName + " read(JsonReader in) throws IOException {");
+            out.println("        if (in.peek() == JsonToken.NULL) {");
+            out.println("            in.nextNull();");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("        switch (in.nextString()) {");
+            for (var constant : type.getEnclosedElements()) {
+                if (constant.getKind() == ElementKind.ENUM_CONSTANT) {
+                    var name = constant.getSimpleName().toString();
+                    out.println("            case \"" + name + "\":");
+                    out.println("                return " + typeName + "." + name + ";");
+                }
+            }
+            out.println("            default:");
+            out.println("                return null;");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void generateFactory(PackageElement packageElement, List<TypeElement> types) throws IOException {
+        var factoryName = factoryName(packageElement);
+        try (var out = openSourceFile(packageElement, factoryName, packageElement)) {
+            out.println("public final class " + factoryName + " implements TypeAdapterFactory {");
+            out.println("    @Override");
+            out.println("    @SuppressWarnings(\"unchecked\")");
+            out.println("    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {");
+            out.println("        var rawType = type.getRawType();");
+            for (var type : types) {
+                var adapterName = adapterName(type);
+                var constructorArguments = type.getKind() == ElementKind.ENUM ? "" : "gson";
+                out.println("        if (rawType == " + sourceName(type) + ".class) {");
+                out.println("            return (TypeAdapter<T>) new " + adapterName + "(" + constructorArguments + ");");
+                out.println("        }");
+            }
+            out.println("        return null;");
+            out.println("    }");
+            out.println();
+            out.println("    static String readString(JsonReader in) throws IOException {");
+            out.println("        switch (in.peek()) {");
+            out.println("            case NULL:");
+            out.println("                in.nextNull();");
+            out.println("                return null;");
+            out.println("            case BOOLEAN:");
+            out.println("                return Boolean.toString(in.nextBoolean());");
+            out.println("            default:");
+            out.println("                return in.nextString();");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("    static Boolean readBoolean(JsonReader in) throws IOException {");
+            out.println("        switch (in.peek()) {");
+            out.println("            case NULL:");
+            out.println("                in.nextNull();");
+            out.println("                return null;");
+            out.println("            case STRING:");
+            out.println("                return Boolean.parseBoolean(in.nextString());");
+            out.println("            default:");
+            out.println("                return in.nextBoolean();");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            generateNumberReader(out, "Integer", "in.nextInt()");
+            generateNumberReader(out, "Long", "in.nextLong()");
+            generateNumberReader(out, "Double", "in.nextDouble()");
+            generateNumberReader(out, "BigDecimal", "new BigDecimal(in.nextString())");
+            out.println("}");
+        }
+    }
+
+    private void generateNumberReader(PrintWriter out, String type, String expression) {
+        out.println("    static " + type + " read" + type + "(JsonReader in) throws IOException {");
+        out.println("        if (in.peek() == JsonToken.NULL) {");
+        out.println("            in.nextNull();");
+        out.println("            return null;");
+        out.println("        }");
+        out.println("        try {");
+        out.println("            return " + expression + ";");
+        out.println("        } catch (NumberFormatException e) {");
+        out.println("            throw new JsonSyntaxException(e);");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+    }
+
+    private PrintWriter openSourceFile(PackageElement packageElement, String simpleName, Element originatingElement)
+            throws IOException {
+        var packageName = packageElement.getQualifiedName().toString();
+        var sourceFile = processingEnv.getFiler().createSourceFile(packageName + "." + simpleName, originatingElement);
+        var out = new PrintWriter(sourceFile.openWriter());
+        out.println("package " + packageName + ";");
+        out.println();
+        out.println("import com.google.gson.Gson;");
+        out.println("import com.google.gson.JsonSyntaxException;");
+        out.println("import com.google.gson.TypeAdapter;");
+        out.println("import com.google.gson.TypeAdapterFactory;");
+        out.println("import com.google.gson.reflect.TypeToken;");
+        out.println("import com.google.gson.stream.JsonReader;");
+        out.println("import com.google.gson.stream.JsonToken;");
+        out.println("import com.google.gson.stream.JsonWriter;");
+        out.println("import javax.annotation.Generated;");
+        out.println();
+        out.println("import java.io.IOException;");
+        out.println("import java.math.BigDecimal;");
+        out.println();
+        out.println(GENERATED);
+        return out;
+    }
+
+    private List<Property> findProperties(TypeElement type) {
+        var methods = ElementFilter.methodsIn(type.getEnclosedElements());
+        var properties = new ArrayList<Property>();
+        for (var field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            var name = field.getSimpleName().toString();
+            var capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            var getter = findMethod(methods, "get" + capitalized, 0);
+            if (getter == null && field.asType().getKind() == TypeKind.BOOLEAN) {
+                getter = findMethod(methods, "is" + capitalized, 0);
+            }
+            var setter = findMethod(methods, "set" + capitalized, 1);
+            if (getter == null || setter == null) {
+                error(field, "A getter and setter are needed to generate a type adapter");
+                continue;
+            }
+            var property = new Property(name, field.asType(), getter, setter);
+            if (property.isPrimitive() && !property.isInline()) {
+                error(field, "Fields of type " + field.asType() + " are not supported");
+                continue;
+            }
+            properties.add(property);
+        }
+        return properties;
+    }
+
+    private String findMethod(List<ExecutableElement> methods, String name, int parameterCount) {
+        for (var method : methods) {
+            if (method.getSimpleName().contentEquals(name)
+                    && method.getParameters().size() == parameterCount
+                    && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasNoArgumentConstructor(TypeElement type) {
+        var constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        return constructors.stream().anyMatch(constructor ->
+                constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE));
+    }
+
+    private String typeToken(TypeMirror type) {
+        if (type instanceof DeclaredType && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return "new TypeToken<" + type + ">() {}";
+        }
+        return processingEnv.getTypeUtils().erasure(type) + ".class";
+    }
+
+    /**
+     * The name of a type relative to its package, e.g. User.Availability.
+     */
+    private String sourceName(TypeElement type) {
+        var enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement) {
+            return sourceName((TypeElement) enclosing) + "." + type.getSimpleName();
+        }
+        return type.getSimpleName().toString();
+    }
+
+    private String adapterName(TypeElement type) {
+        return sourceName(type).replace('.', '_') + "TypeAdapter";
+    }
+
+    private String factoryName(PackageElement packageElement) {
+        var packageName = packageElement.getSimpleName().toString();
+        return Character.toUpperCase(packageName.charAt(0)) + packageName.substring(1) + "TypeAdapterFactory";
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,67 @@
+package org.jbsmit.blackboardRestClient;
+
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+import org.jbsmit.blackboardRestClient.model.User;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs calls through a BlackboardAgent against a FakeBlackboard, so it covers the whole path: building the request,
+ * the HTTP round trip over loopback, reading the body and decoding it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentRunBenchmark {
+    @Param({"100", "1000"})
+    int pageSize;
+
+    /**
+     * Server side latency per request, e.g. -p latencyMillis=20 to get closer to a hosted Learn instance.
+     */
+    @Param({"0"})
+    int latencyMillis;
+
+    private FakeBlackboard blackboard;
+    private BlackboardAgent agent;
+
+    @Setup
+    public void setUp() {
+        blackboard = FakeBlackboard.create()
+                .setPageSize(pageSize)
+                .setLatency(Duration.ofMillis(latencyMillis), Duration.ZERO)
+                .withUsers(pageSize)
+                .withCourses(1, pageSize, 1, 0)
+                .start();
+        agent = new BlackboardAgent(blackboard.createConfig());
+    }
+
+    @TearDown
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Benchmark
+    public List<User> getUsers() {
+        return agent.run(UsersApi.getUsers());
+    }
+
+    @Benchmark
+    public List<GradeV2> getColumnGrades() {
+        return agent.run(CourseGradesApi.getColumnGrades("_1_1", "_1_1"));
+    }
+
+    @Benchmark
+    public User getUser() {
+        return agent.run(UsersApi.getUser("_1_1"));
+    }
+}
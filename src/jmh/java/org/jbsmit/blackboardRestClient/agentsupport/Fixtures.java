@@ -0,0 +1,69 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Builds response bodies for the benchmarks out of the records in src/jmh/resources/fixtures.
+ *
+ * The records are repeated until the page has the requested size, every copy getting its own id so the
+ * decoder can't benefit from identical strings.
+ */
+public class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * @return a users page as returned by /learn/api/public/v1/users, with a nextPage link when nextPage is not null
+     */
+    public static String usersPage(int size, String nextPage) {
+        return page(records("users.json", size, "id", "externalId", "userName"), nextPage);
+    }
+
+    /**
+     * @return a page of grades as returned by /learn/api/public/v2/courses/{courseId}/gradebook/columns/{columnId}/users
+     */
+    public static String gradesPage(int size, String nextPage) {
+        return page(records("grades.json", size, "userId"), nextPage);
+    }
+
+    private static JsonArray records(String fixture, int size, String... uniqueFields) {
+        var templates = load(fixture);
+        var records = new JsonArray(size);
+        for (int i = 0; i < size; i++) {
+            var record = templates.get(i % templates.size()).getAsJsonObject().deepCopy();
+            for (var field : uniqueFields) {
+                record.addProperty(field, record.get(field).getAsString() + "-" + i);
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static String page(JsonArray results, String nextPage) {
+        var page = new JsonObject();
+        page.add("results", results);
+        if (nextPage != null) {
+            var paging = new JsonObject();
+            paging.addProperty("nextPage", nextPage);
+            page.add("paging", paging);
+        }
+        return page.toString();
+    }
+
+    private static JsonArray load(String fixture) {
+        var resource = Objects.requireNonNull(Fixtures.class.getResourceAsStream("/fixtures/" + fixture), fixture);
+        try (var reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
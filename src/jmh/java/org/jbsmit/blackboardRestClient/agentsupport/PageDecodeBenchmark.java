@@ -0,0 +1,62 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.gson.reflect.TypeToken;
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+import org.jbsmit.blackboardRestClient.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a single page the way BlackboardAgent does: straight from the response bytes into a PagedResult.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageDecodeBenchmark {
+    private static final Type USERS_PAGE = new TypeToken<PagedResult<List<User>>>() {}.getType();
+    private static final Type GRADES_PAGE = new TypeToken<PagedResult<List<GradeV2>>>() {}.getType();
+
+    @Param({"100", "1000"})
+    int pageSize;
+
+    /**
+     * generated uses the type adapters from the codegen module, reflective Gson's own ReflectiveTypeAdapterFactory.
+     */
+    @Param({"generated", "reflective"})
+    String typeAdapters;
+
+    private JsonDeserializer jsonDeserializer;
+    private byte[] usersPage;
+    private byte[] gradesPage;
+
+    @Setup
+    public void setUp() {
+        jsonDeserializer = new JsonDeserializer(typeAdapters.equals("generated"));
+        usersPage = Fixtures.usersPage(pageSize, "/learn/api/public/v1/users?offset=" + pageSize)
+                .getBytes(StandardCharsets.UTF_8);
+        gradesPage = Fixtures.gradesPage(pageSize, null).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public PagedResult<List<User>> decodeUsersPage() {
+        return jsonDeserializer.fromJson(reader(usersPage), USERS_PAGE);
+    }
+
+    @Benchmark
+    public PagedResult<List<GradeV2>> decodeGradesPage() {
+        return jsonDeserializer.fromJson(reader(gradesPage), GRADES_PAGE);
+    }
+
+    private static InputStreamReader reader(byte[] body) {
+        return new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.Request;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi.GetColumnGradesOption;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.jbsmit.blackboardRestClient.api.UsersApi.GetUsersOption;
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+import org.jbsmit.blackboardRestClient.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what happens to a call before it hits the network: building it through the generated API classes
+ * and expanding it into an OkHttp Request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestCallBenchmark {
+    private HttpClient httpClient;
+    private RestCall<List<User>> usersCall;
+    private RestCall<List<GradeV2>> gradesCall;
+    private RestCall<User> userCall;
+
+    @Setup
+    public void setUp() {
+        httpClient = new HttpClient("https://learn.example.edu");
+        usersCall = buildUsersCall();
+        gradesCall = buildGradesCall();
+        userCall = buildUserCall();
+    }
+
+    @Benchmark
+    public RestCall<List<User>> buildUsersCall() {
+        return UsersApi.getUsers(
+                GetUsersOption.userName("s12"),
+                GetUsersOption.dataSourceId("_2_1"),
+                GetUsersOption.sort("userName"));
+    }
+
+    @Benchmark
+    public RestCall<List<GradeV2>> buildGradesCall() {
+        return CourseGradesApi.getColumnGrades("_1234_1", "_5521_1", GetColumnGradesOption.changeIndex(1616005423L));
+    }
+
+    @Benchmark
+    public RestCall<User> buildUserCall() {
+        return UsersApi.getUser("externalId:s1234567");
+    }
+
+    @Benchmark
+    public Request expandUsersCall() {
+        return httpClient.buildRequest(usersCall);
+    }
+
+    @Benchmark
+    public Request expandGradesCall() {
+        return httpClient.buildRequest(gradesCall);
+    }
+
+    @Benchmark
+    public Request expandUserCall() {
+        return httpClient.buildRequest(userCall);
+    }
+}
@@ -3,23 +3,37 @@ package org.jbsmit.blackboardRestClient;
 import com.google.common.base.Strings;
 import com.google.gson.reflect.TypeToken;
 import org.jbsmit.blackboardRestClient.agentsupport.*;
+import org.jbsmit.blackboardRestClient.api.UploadsApi;
+import org.jbsmit.blackboardRestClient.model.UploadedFileInfo;
+import org.jbsmit.blackboardRestClient.referencedata.ReferenceDataCache;
 import okhttp3.*;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Performs RestCall's. This is class is bound to a particular instance of Blackboard.
  */
 public class BlackboardAgent {
     private final BlackboardConfig blackboardConfig;
-    private final TokenManager tokenManager = new TokenManager();
+    private final TokenManager tokenManager;
     private final JsonDeserializer jsonDeserializer = new JsonDeserializer();
     private final HttpClient httpClient;
+    private final Instrumentation instrumentation;
+    private final ReferenceDataCache referenceData;
 
     /**
      * Construct a new BlackboardAgent
@@ -27,7 +41,18 @@ public class BlackboardAgent {
      */
     public BlackboardAgent(BlackboardConfig blackboardConfig) {
         this.blackboardConfig = blackboardConfig;
-        this.httpClient = new HttpClient(blackboardConfig.getUrl());
+        this.httpClient = new HttpClient(blackboardConfig);
+        this.instrumentation = blackboardConfig.getInstrumentation();
+        this.tokenManager = new TokenManager(this::renewAccessToken, blackboardConfig.getTokenRefreshSkew());
+        // Last, so the cache only ever sees a fully constructed agent
+        this.referenceData = new ReferenceDataCache(this);
+    }
+
+    /**
+     * @return The in-memory cache of reference data, like terms and roles, fetched through this agent
+     */
+    public ReferenceDataCache getReferenceData() {
+        return referenceData;
     }
 
     /**
@@ -45,28 +70,292 @@ public class BlackboardAgent {
             //noinspection unchecked
             return (T) runList((RestCall<List<?>>)restCall);
         } else {
-            var bodyString = httpClient.run(restCall);
-            return parseResult(bodyString, restCall);
+            return httpClient.run(restCall, body -> parseResult(restCall, body));
         }
     }
 
-    private <T> List<T> runList(RestCall<List<? extends T>> restCall) {
-        var page = parsePagedResult(httpClient.run(restCall), restCall.getReturnType());
+    /**
+     * Run a RestCall without blocking the calling thread
+     *
+     * The request is enqueued on the HTTP client's dispatcher. If the RestCall returns a paged result, the returned
+     * future completes once all pages have been fetched.
+     *
+     * @param restCall The RestCall
+     * @param <T> The response type of this rest call
+     * @return A future that completes with the result of this rest call
+     */
+    public <T> CompletableFuture<T> runAsync(RestCall<T> restCall) {
+        return getAccessTokenAsync().thenCompose(accessToken -> {
+            restCall.addHeader("Authorization", "Bearer " + accessToken);
+            if (hasListResult(restCall)) {
+                //noinspection unchecked
+                return (CompletableFuture<T>) runListAsync((RestCall<List<?>>) restCall);
+            } else {
+                return httpClient.runAsync(restCall, body -> parseResult(restCall, body));
+            }
+        });
+    }
+
+    /**
+     * Download a file, like a content attachment or a submitted attempt file, straight to a Path, channel or stream
+     *
+     * The file is written while it comes in, so it is never held in memory as a whole. A dropped connection is resumed
+     * where it stopped, see {@link Download}.
+     *
+     * @param restCall The RestCall of the download endpoint, e.g. CourseGradeAttemptsApi.download
+     * @param download The target, and optionally a progress listener and an expected digest
+     * @return What was written
+     */
+    public DownloadResult download(RestCall<?> restCall, Download download) {
+        return httpClient.download(restCall, download,
+                attemptCall -> attemptCall.addHeader("Authorization", "Bearer " + getAccessToken()));
+    }
+
+    /**
+     * Upload many files concurrently, at most {@link BlackboardConfig#getMaxConcurrentCalls()} at the same time
+     *
+     * @param uploads The files
+     * @return The uploaded file, whose id can be passed to for example createFileAttachment or attachFile, or the
+     * failure of each upload, in the iteration order of uploads
+     */
+    public List<CallResult<UploadedFileInfo>> uploadAll(Collection<Upload> uploads) {
+        return uploadAll(uploads, blackboardConfig.getMaxConcurrentCalls());
+    }
+
+    /**
+     * Upload many files concurrently, with at most maxConcurrentUploads in flight at the same time
+     *
+     * @see #uploadAll(Collection)
+     */
+    public List<CallResult<UploadedFileInfo>> uploadAll(Collection<Upload> uploads, int maxConcurrentUploads) {
+        var restCalls = new ArrayList<RestCall<UploadedFileInfo>>(uploads.size());
+        for (var upload : uploads) {
+            restCalls.add(UploadsApi.upload(upload));
+        }
+        return runAll(restCalls, maxConcurrentUploads);
+    }
+
+    /**
+     * Run many independent RestCalls concurrently
+     *
+     * Every call runs on its own virtual thread (or on a pooled platform thread before Java 21). At most
+     * {@link BlackboardConfig#getMaxConcurrentCalls()} calls are in flight at the same time.
+     *
+     * @param restCalls The RestCalls
+     * @param <T> The response type of the rest calls
+     * @return The result or failure of each call, in the iteration order of restCalls
+     */
+    public <T> List<CallResult<T>> runAll(Collection<? extends RestCall<T>> restCalls) {
+        return runAll(restCalls, blackboardConfig.getMaxConcurrentCalls());
+    }
+
+    /**
+     * Run many independent RestCalls concurrently, with at most maxConcurrentCalls in flight at the same time
+     *
+     * @see #runAll(Collection)
+     */
+    public <T> List<CallResult<T>> runAll(Collection<? extends RestCall<T>> restCalls, int maxConcurrentCalls) {
+        var permits = new Semaphore(maxConcurrentCalls);
+        var executor = VirtualThreads.newThreadPerTaskExecutor("blackboard-run-all-%d");
+        try {
+            var futures = new ArrayList<CompletableFuture<CallResult<T>>>(restCalls.size());
+            for (var restCall : restCalls) {
+                permits.acquireUninterruptibly();
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return CallResult.success(restCall, run(restCall));
+                    } catch (RuntimeException e) {
+                        return CallResult.failure(restCall, e);
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+            }
+
+            var results = new ArrayList<CallResult<T>>(futures.size());
+            for (var future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Run a RestCall that returns a paged list and stream its results
+     *
+     * Pages are fetched lazily while the stream is consumed. No requests are made before the first element is
+     * requested, and no further pages are fetched once a short-circuiting operation like findFirst or limit is done.
+     *
+     * @param restCall The RestCall
+     * @param <T> The element type of the list
+     * @return A sequential stream over all results
+     */
+    public <T> Stream<T> stream(RestCall<List<T>> restCall) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator(restCall), Spliterator.ORDERED),
+                false);
+    }
+
+    /**
+     * Run a RestCall that returns a paged list and iterate over its results
+     *
+     * Pages are fetched lazily while iterating, see {@link #stream(RestCall)}.
+     *
+     * @param restCall The RestCall
+     * @param <T> The element type of the list
+     * @return An iterator over all results
+     */
+    public <T> Iterator<T> iterator(RestCall<List<T>> restCall) {
+        var pageCall = restCall.copy();
+        applyDefaultPageSize(pageCall);
+        var pageIndex = new AtomicInteger();
+        return new PagedIterator<>(restCall.getUrl(), url -> {
+            pageCall.setUrl(url);
+            pageCall.addHeader("Authorization", "Bearer " + getAccessToken());
+            return runPage(pageCall, pageIndex.getAndIncrement());
+        });
+    }
+
+    private <T> List<T> runList(RestCall<List<? extends T>> listCall) {
+        // Paging changes the limit and url, which must not leak into the caller's call
+        var restCall = listCall.copy();
+        applyDefaultPageSize(restCall);
+        var pageIndex = 0;
+        var page = runPage(restCall, pageIndex);
         var results = new ArrayList<T>(page.getResults());
 
-        while (page.getPaging() != null
-                && !Strings.isNullOrEmpty(page.getPaging().getNextPage())) {
+        var pageFetchWindow = blackboardConfig.getPageFetchWindow();
+        if (pageFetchWindow > 1 && hasNextPage(page)) {
+            var startOffset = Long.parseLong(restCall.getParameters().getOrDefault("offset", "0"));
+            var offsetPattern = OffsetPattern.of(page.getPaging().getNextPage())
+                    .filter(pattern -> pattern.getOffset() > startOffset);
+            if (offsetPattern.isPresent()) {
+                var lastPage = prefetchPages(restCall, offsetPattern.get(), startOffset, pageFetchWindow, results);
+                page = lastPage.page;
+                pageIndex = lastPage.index;
+            }
+        }
+
+        while (hasNextPage(page)) {
             var nextPage = page.getPaging().getNextPage();
             restCall.setUrl(nextPage);
-            page = parsePagedResult(httpClient.run(restCall), restCall.getReturnType());
+            page = runPage(restCall, ++pageIndex);
             results.addAll(page.getResults());
         }
 
         return results;
     }
 
-    private <T> T parseResult(String bodyString, RestCall<T> restCall) {
-        return jsonDeserializer.fromJson(bodyString, restCall.getReturnType().getType());
+    /**
+     * Fetches the pages following the first page in batches of pageFetchWindow concurrent requests, assuming the
+     * server keeps advancing the offset by the same page size. Stops at the last page, or returns the first page
+     * whose nextPage breaks the pattern so the caller can continue sequentially from there. The requests of a batch
+     * that turn out to be past the end are cancelled, and aren't sent when they're still waiting for the quota.
+     */
+    private <T> IndexedPage<List<? extends T>> prefetchPages(
+            RestCall<List<? extends T>> restCall,
+            OffsetPattern offsetPattern,
+            long startOffset,
+            int pageFetchWindow,
+            List<T> results) {
+        var pageSize = offsetPattern.getOffset() - startOffset;
+        var offset = offsetPattern.getOffset();
+        var pageIndex = 1;
+        while (true) {
+            var pages = new ArrayList<CompletableFuture<PagedResult<List<? extends T>>>>();
+            for (int i = 0; i < pageFetchWindow; i++) {
+                var pageCall = restCall.copy();
+                pageCall.setUrl(offsetPattern.urlFor(offset + i * pageSize));
+                var index = pageIndex + i;
+                // Kept as is rather than chained, so cancelling it below cancels the HTTP call
+                var page = httpClient.runAsync(pageCall, body -> parsePagedResult(pageCall, body));
+                var event = new PageEvent();
+                event.begin();
+                page.thenAccept(result -> event.commit(pageCall, index, getItemCount(result)));
+                pages.add(page);
+            }
+
+            for (int i = 0; i < pages.size(); i++) {
+                var page = joinPage(pages.get(i));
+                results.addAll(page.getResults());
+
+                var expectedNextPage = offsetPattern.urlFor(offset + (i + 1) * pageSize);
+                if (!hasNextPage(page) || !expectedNextPage.equals(page.getPaging().getNextPage())) {
+                    pages.subList(i + 1, pages.size()).forEach(future -> future.cancel(true));
+                    return new IndexedPage<>(page, pageIndex + i);
+                }
+            }
+            offset += pageFetchWindow * pageSize;
+            pageIndex += pageFetchWindow;
+        }
+    }
+
+    private <T> PagedResult<T> joinPage(CompletableFuture<PagedResult<T>> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<List<T>> runListAsync(RestCall<List<? extends T>> restCall) {
+        var results = new ArrayList<T>();
+        var pageCall = restCall.copy();
+        applyDefaultPageSize(pageCall);
+        return fetchPagesAsync(pageCall, 0, results).thenApply(done -> results);
+    }
+
+    private <T> CompletableFuture<Void> fetchPagesAsync(
+            RestCall<List<? extends T>> pageCall,
+            int pageIndex,
+            List<T> results) {
+        var event = new PageEvent();
+        event.begin();
+        return httpClient.runAsync(pageCall, body -> parsePagedResult(pageCall, body)).thenCompose(page -> {
+            event.commit(pageCall, pageIndex, getItemCount(page));
+            results.addAll(page.getResults());
+            if (!hasNextPage(page)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            pageCall.setUrl(page.getPaging().getNextPage());
+            return fetchPagesAsync(pageCall, pageIndex + 1, results);
+        });
+    }
+
+    private void applyDefaultPageSize(RestCall<?> restCall) {
+        var defaultPageSize = blackboardConfig.getDefaultPageSize();
+        if (defaultPageSize > 0 && !restCall.getParameters().containsKey("limit")) {
+            restCall.addParameter("limit", defaultPageSize);
+        }
+    }
+
+    private boolean hasNextPage(PagedResult<?> page) {
+        return page.getPaging() != null
+                && !Strings.isNullOrEmpty(page.getPaging().getNextPage());
+    }
+
+    private <T> PagedResult<T> runPage(RestCall<T> restCall, int pageIndex) {
+        var event = new PageEvent();
+        event.begin();
+        var page = httpClient.run(restCall, body -> parsePagedResult(restCall, body));
+        event.commit(restCall, pageIndex, getItemCount(page));
+        return page;
+    }
+
+    private static int getItemCount(PagedResult<?> page) {
+        return page.getResults() instanceof List ? ((List<?>) page.getResults()).size() : 0;
+    }
+
+    private <T> T parseResult(RestCall<T> restCall, ResponseBody body) {
+        var start = System.nanoTime();
+        T result = jsonDeserializer.fromJson(body.charStream(), restCall.getReturnType().getType());
+        instrumentation.onDeserialized(restCall, System.nanoTime() - start);
+        return result;
     }
 
     private <T> boolean hasListResult(RestCall<T> restCall) {
@@ -87,23 +376,33 @@ public class BlackboardAgent {
         }
     }
 
-    private <T> PagedResult<T> parsePagedResult(String bodyString, TypeToken<T> typeToken) {
-        var type = TypeToken.getParameterized(PagedResult.class, typeToken.getType()).getType();
-        return jsonDeserializer.fromJson(bodyString, type);
+    private <T> PagedResult<T> parsePagedResult(RestCall<T> restCall, ResponseBody body) {
+        var start = System.nanoTime();
+        var type = TypeToken.getParameterized(PagedResult.class, restCall.getReturnType().getType()).getType();
+        PagedResult<T> page = jsonDeserializer.fromJson(body.charStream(), type);
+        instrumentation.onDeserialized(restCall, System.nanoTime() - start);
+        instrumentation.onPage(restCall, getItemCount(page));
+        return page;
     }
 
     private String getAccessToken() {
-        if (tokenManager.isTokenExpired()) {
-            var token = renewAccessToken();
-            var expirationInstant = Instant.now().plusSeconds(token.getExpires_in());
-            tokenManager.updateToken(token.getAccess_token(), expirationInstant);
-        }
-
         return tokenManager.getToken();
     }
 
-    private Token renewAccessToken() {
-        var restCall = RestCallBuilder
+    private CompletableFuture<String> getAccessTokenAsync() {
+        return tokenManager.getTokenAsync();
+    }
+
+    private CompletableFuture<Token> renewAccessToken() {
+        var restCall = createRenewAccessTokenCall();
+        var event = new TokenRenewalEvent();
+        event.begin();
+        return httpClient.runAsync(restCall, body -> parseResult(restCall, body))
+                .whenComplete((token, e) -> event.commit(token));
+    }
+
+    private RestCall<Token> createRenewAccessTokenCall() {
+        return RestCallBuilder
                 .start(new TypeToken<Token>() {
                 })
                 .method(MethodType.POST)
@@ -111,12 +410,19 @@ public class BlackboardAgent {
                 .body(MediaType.get("application/x-www-form-urlencoded"), "grant_type=client_credentials")
                 .header("Authorization", "Basic " + hashSecret())
                 .build();
-
-        var responseString = httpClient.run(restCall);
-        return jsonDeserializer.fromJson(responseString, Token.class);
     }
 
     private String hashSecret() {
         return Base64.getEncoder().encodeToString(blackboardConfig.getSecret().getBytes());
     }
+
+    private static class IndexedPage<T> {
+        private final PagedResult<T> page;
+        private final int index;
+
+        IndexedPage(PagedResult<T> page, int index) {
+            this.page = page;
+            this.index = index;
+        }
+    }
 }
@@ -0,0 +1,109 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import java.time.Duration;
+
+/**
+ * Client side rate limiter shared by all calls of a BlackboardAgent.
+ *
+ * It does not limit anything until the server starts throttling. When a call is rate limited, all calls are paused
+ * until the Retry-After has passed, and the rate is cut to half of the rate observed at that moment. While the server
+ * accepts calls, the rate grows by 10% per second again, and the limiter turns itself off after a minute without
+ * throttling.
+ */
+public class AdaptiveRateLimiter {
+    private static final double MIN_RATE = 0.1;
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double INCREASE_PER_SECOND = 0.1;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long RECOVERY_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private double rate = Double.POSITIVE_INFINITY;
+    private long nextFreeNanos = System.nanoTime();
+    private long pausedUntilNanos = System.nanoTime();
+    private long lastThrottledNanos = System.nanoTime() - RECOVERY_NANOS;
+    private long lastIncreaseNanos = System.nanoTime();
+    private long windowStartNanos = System.nanoTime();
+    private int windowCount = 0;
+    private double observedRate = 0;
+
+    /**
+     * Reserves a slot for one request.
+     *
+     * @return The number of nanoseconds the caller has to wait before sending the request
+     */
+    public synchronized long reserve() {
+        var now = System.nanoTime();
+        observe(now);
+
+        var start = Math.max(now, pausedUntilNanos);
+        if (Double.isInfinite(rate)) {
+            return start - now;
+        }
+        var slot = Math.max(start, nextFreeNanos);
+        nextFreeNanos = slot + (long) (NANOS_PER_SECOND / rate);
+        return slot - now;
+    }
+
+    /**
+     * Blocks until a request may be sent.
+     */
+    public void acquire() {
+        var waitNanos = reserve();
+        if (waitNanos > 0) {
+            try {
+                Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public synchronized void onThrottled(Duration retryAfter) {
+        var now = System.nanoTime();
+        if (retryAfter != null) {
+            pausedUntilNanos = Math.max(pausedUntilNanos, now + retryAfter.toNanos());
+        }
+        var currentRate = Math.min(rate, Math.max(observedRate, windowRate(now)));
+        rate = Math.max(MIN_RATE, currentRate * DECREASE_FACTOR);
+        lastThrottledNanos = now;
+        lastIncreaseNanos = now;
+    }
+
+    public synchronized void onSuccess() {
+        if (Double.isInfinite(rate)) {
+            return;
+        }
+        var now = System.nanoTime();
+        if (now - lastThrottledNanos >= RECOVERY_NANOS) {
+            rate = Double.POSITIVE_INFINITY;
+            return;
+        }
+        var elapsedSeconds = (double) (now - lastIncreaseNanos) / NANOS_PER_SECOND;
+        if (elapsedSeconds >= 1) {
+            rate *= Math.pow(1 + INCREASE_PER_SECOND, elapsedSeconds);
+            lastIncreaseNanos = now;
+        }
+    }
+
+    /**
+     * The current rate in requests per second, infinite when not limiting.
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    private void observe(long now) {
+        if (now - windowStartNanos >= NANOS_PER_SECOND) {
+            observedRate = windowRate(now);
+            windowStartNanos = now;
+            windowCount = 0;
+        }
+        windowCount++;
+    }
+
+    private double windowRate(long now) {
+        var elapsed = Math.max(now - windowStartNanos, NANOS_PER_SECOND / 10);
+        return windowCount * (double) NANOS_PER_SECOND / elapsed;
+    }
+}
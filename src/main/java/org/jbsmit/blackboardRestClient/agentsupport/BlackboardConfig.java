@@ -1,8 +1,22 @@
 package org.jbsmit.blackboardRestClient.agentsupport;
 
+import java.time.Duration;
+
 public class BlackboardConfig {
     private final String url;
     private final String secret;
+    private int pageFetchWindow = 1;
+    private int defaultPageSize = 0;
+    private int maxConcurrentCalls = 64;
+    private WireLogging wireLogging = WireLogging.create();
+    private ConnectionSettings connectionSettings = ConnectionSettings.create();
+    private RetryPolicy retryPolicy = RetryPolicy.create();
+    private RequestQuota requestQuota = RequestQuota.create();
+    private CallPriority defaultPriority = CallPriority.INTERACTIVE;
+    private Duration tokenRefreshSkew = Duration.ofMinutes(1);
+    private Instrumentation instrumentation = Instrumentation.NONE;
+    private ResponseCache responseCache = ResponseCache.none();
+    private boolean coalesceRequests = false;
 
     public BlackboardConfig(String url, String secret) {
         this.url = url;
@@ -16,4 +30,164 @@ public class BlackboardConfig {
     public String getSecret() {
         return secret;
     }
+
+    public int getPageFetchWindow() {
+        return pageFetchWindow;
+    }
+
+    /**
+     * Number of pages of a paged result that are fetched concurrently. The default of 1 walks the pages one by one.
+     */
+    public BlackboardConfig setPageFetchWindow(int pageFetchWindow) {
+        if (pageFetchWindow < 1) {
+            throw new IllegalArgumentException("pageFetchWindow must be at least 1");
+        }
+        this.pageFetchWindow = pageFetchWindow;
+        return this;
+    }
+
+    public int getDefaultPageSize() {
+        return defaultPageSize;
+    }
+
+    /**
+     * Page size of list calls that don't set one with RestCall.setPageSize. The default of 0 leaves it to Learn,
+     * which usually returns 100 items per page.
+     */
+    public BlackboardConfig setDefaultPageSize(int defaultPageSize) {
+        if (defaultPageSize < 0) {
+            throw new IllegalArgumentException("defaultPageSize must not be negative");
+        }
+        this.defaultPageSize = defaultPageSize;
+        return this;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * Maximum number of calls of a BlackboardAgent.runAll that are in flight at the same time.
+     */
+    public BlackboardConfig setMaxConcurrentCalls(int maxConcurrentCalls) {
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be at least 1");
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        return this;
+    }
+
+    public WireLogging getWireLogging() {
+        return wireLogging;
+    }
+
+    /**
+     * Configures logging of the HTTP traffic. Off by default.
+     */
+    public BlackboardConfig setWireLogging(WireLogging wireLogging) {
+        this.wireLogging = wireLogging;
+        return this;
+    }
+
+    public Duration getTokenRefreshSkew() {
+        return tokenRefreshSkew;
+    }
+
+    /**
+     * How long before its expiration the access token is renewed in the background. Defaults to one minute, and is
+     * capped at half the lifetime of the token.
+     */
+    public BlackboardConfig setTokenRefreshSkew(Duration tokenRefreshSkew) {
+        this.tokenRefreshSkew = tokenRefreshSkew;
+        return this;
+    }
+
+    public ConnectionSettings getConnectionSettings() {
+        return connectionSettings;
+    }
+
+    /**
+     * Configures timeouts, connection pooling and protocols of the HTTP client.
+     */
+    public BlackboardConfig setConnectionSettings(ConnectionSettings connectionSettings) {
+        this.connectionSettings = connectionSettings;
+        return this;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Configures retrying of idempotent calls that are rate limited (429) or hit an unavailable server (503). Use
+     * {@link RetryPolicy#none()} to report these responses immediately.
+     */
+    public BlackboardConfig setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    public RequestQuota getRequestQuota() {
+        return requestQuota;
+    }
+
+    /**
+     * Limits the requests per second and per day. Pass the same RequestQuota to every config that uses the same
+     * secret, so their jobs share the budget. Unlimited by default.
+     */
+    public BlackboardConfig setRequestQuota(RequestQuota requestQuota) {
+        this.requestQuota = requestQuota;
+        return this;
+    }
+
+    public CallPriority getDefaultPriority() {
+        return defaultPriority;
+    }
+
+    /**
+     * The priority of calls that do not set one themselves. Defaults to INTERACTIVE; batch jobs should use BATCH.
+     */
+    public BlackboardConfig setDefaultPriority(CallPriority defaultPriority) {
+        this.defaultPriority = defaultPriority;
+        return this;
+    }
+
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Receives latency, status, size and decoding measurements of every call, e.g. an
+     * {@link InMemoryInstrumentation}. Nothing is recorded by default.
+     */
+    public BlackboardConfig setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Caches GET responses that carry an ETag or Last-Modified header, and revalidates them with a conditional GET.
+     * Off by default.
+     */
+    public BlackboardConfig setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    /**
+     * Lets identical GETs that run at the same time, with the same url and access token, share one request and one
+     * decoded result. Callers then get the same object, so treat results as read-only. Off by default.
+     */
+    public BlackboardConfig setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
+        return this;
+    }
 }
@@ -0,0 +1,11 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * Priority of a RestCall when requests have to wait for the RequestQuota.
+ */
+public enum CallPriority {
+    /** Calls a user is waiting for. These are served before any waiting batch call. */
+    INTERACTIVE,
+    /** Background work like synchronisation jobs, which yields to interactive calls. */
+    BATCH
+}
@@ -0,0 +1,47 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * The outcome of a single RestCall of a bulk run: either the result of the call or the exception it failed with.
+ */
+public class CallResult<T> {
+    private final RestCall<T> restCall;
+    private final T result;
+    private final RuntimeException exception;
+
+    private CallResult(RestCall<T> restCall, T result, RuntimeException exception) {
+        this.restCall = restCall;
+        this.result = result;
+        this.exception = exception;
+    }
+
+    public static <T> CallResult<T> success(RestCall<T> restCall, T result) {
+        return new CallResult<>(restCall, result, null);
+    }
+
+    public static <T> CallResult<T> failure(RestCall<T> restCall, RuntimeException exception) {
+        return new CallResult<>(restCall, null, exception);
+    }
+
+    public RestCall<T> getRestCall() {
+        return restCall;
+    }
+
+    public boolean isSuccess() {
+        return exception == null;
+    }
+
+    /**
+     * @return The result of the call
+     * @throws RuntimeException The exception the call failed with
+     */
+    public T getResult() {
+        if (exception != null) {
+            throw exception;
+        }
+        return result;
+    }
+
+    public RuntimeException getException() {
+        return exception;
+    }
+}
@@ -0,0 +1,142 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import java.time.Duration;
+
+/**
+ * Settings of the HTTP connections a BlackboardAgent makes: timeouts, connection pooling, the limits of the
+ * dispatcher that runs asynchronous calls and the protocols to negotiate.
+ */
+public class ConnectionSettings {
+    private Duration connectTimeout = Duration.ofSeconds(30);
+    private Duration readTimeout = Duration.ofMinutes(2);
+    private Duration writeTimeout = Duration.ofMinutes(2);
+    private Duration callTimeout = Duration.ofMinutes(5);
+    private int maxIdleConnections = 5;
+    private Duration keepAlive = Duration.ofMinutes(5);
+    private int maxRequests = 64;
+    private int maxRequestsPerHost = 5;
+    private boolean http2Enabled = true;
+    private boolean shareConnectionPool = false;
+
+    private ConnectionSettings() {
+    }
+
+    public static ConnectionSettings create() {
+        return new ConnectionSettings();
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public ConnectionSettings setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public ConnectionSettings setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    public Duration getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public ConnectionSettings setWriteTimeout(Duration writeTimeout) {
+        this.writeTimeout = writeTimeout;
+        return this;
+    }
+
+    public Duration getCallTimeout() {
+        return callTimeout;
+    }
+
+    /**
+     * Time a whole call may take, from sending the request to reading the last byte of the response. Defaults to 5
+     * minutes. Downloads and uploads aren't limited by it, as a large file on a slow link can take longer; the read and
+     * write timeouts still catch one that stalls.
+     */
+    public ConnectionSettings setCallTimeout(Duration callTimeout) {
+        this.callTimeout = callTimeout;
+        return this;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    /**
+     * Number of idle connections kept in the pool. Defaults to 5.
+     */
+    public ConnectionSettings setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+        return this;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * How long an idle connection is kept in the pool. Defaults to 5 minutes.
+     */
+    public ConnectionSettings setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /**
+     * Maximum number of asynchronous calls executing at the same time. Defaults to 64.
+     */
+    public ConnectionSettings setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     * Maximum number of asynchronous calls executing at the same time against one host. Defaults to 5.
+     */
+    public ConnectionSettings setMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    /**
+     * Whether HTTP/2 is negotiated with servers that support it. When disabled, only HTTP/1.1 is used. Enabled by
+     * default.
+     */
+    public ConnectionSettings setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+        return this;
+    }
+
+    public boolean isShareConnectionPool() {
+        return shareConnectionPool;
+    }
+
+    /**
+     * Whether agents targeting the same host with the same pool and dispatcher limits share one connection pool and
+     * dispatcher. Timeouts and protocols remain per agent. Disabled by default.
+     */
+    public ConnectionSettings setShareConnectionPool(boolean shareConnectionPool) {
+        this.shareConnectionPool = shareConnectionPool;
+        return this;
+    }
+}
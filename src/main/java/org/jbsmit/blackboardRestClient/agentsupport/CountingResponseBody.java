@@ -0,0 +1,52 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+
+/**
+ * Counts the bytes read from a response body, also when its length isn't known up front.
+ */
+class CountingResponseBody extends ResponseBody {
+    private final ResponseBody delegate;
+    private final BufferedSource source;
+    private long bytesRead;
+
+    CountingResponseBody(ResponseBody delegate) {
+        this.delegate = delegate;
+        this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                var read = super.read(sink, byteCount);
+                if (read > 0) {
+                    bytesRead += read;
+                }
+                return read;
+            }
+        });
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public BufferedSource source() {
+        return source;
+    }
+
+    long getBytesRead() {
+        return bytesRead;
+    }
+}
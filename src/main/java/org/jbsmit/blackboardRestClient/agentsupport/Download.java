@@ -0,0 +1,147 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Where and how BlackboardAgent.download writes a file, e.g. an attachment or a submitted attempt file. The body is
+ * copied to the target chunk by chunk while it comes in, so files of any size can be downloaded.
+ *
+ * <pre>
+ * agent.download(CourseGradeAttemptsApi.download(courseId, attemptId, fileId),
+ *         Download.to(path).setProgressListener((written, total) -> ...));
+ * </pre>
+ *
+ * When the connection drops halfway, the download resumes where it stopped with a Range request. When Blackboard
+ * ignores the range, the part that was already written is skipped.
+ */
+public class Download {
+    private final Path path;
+    private final WritableByteChannel channel;
+    private DownloadProgressListener progressListener = (bytesWritten, totalBytes) -> { };
+    private String digestAlgorithm;
+    private String expectedDigest;
+    private int maxResumes = 3;
+    private boolean resumeExisting;
+    private int chunkSize = 64 * 1024;
+
+    private Download(Path path, WritableByteChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Writes the file to path, replacing what is there.
+     */
+    public static Download to(Path path) {
+        return new Download(path, null);
+    }
+
+    /**
+     * Writes the file to channel, which is left open.
+     */
+    public static Download to(WritableByteChannel channel) {
+        return new Download(null, channel);
+    }
+
+    /**
+     * Writes the file to outputStream, which is left open.
+     */
+    public static Download to(OutputStream outputStream) {
+        return new Download(null, Channels.newChannel(outputStream));
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    WritableByteChannel getChannel() {
+        return channel;
+    }
+
+    public DownloadProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public Download setProgressListener(DownloadProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    public String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    /**
+     * Computes a digest of the file while it's written, e.g. SHA-256. It ends up in the DownloadResult.
+     */
+    public Download setDigest(String digestAlgorithm) {
+        this.digestAlgorithm = digestAlgorithm;
+        return this;
+    }
+
+    public String getExpectedDigest() {
+        return expectedDigest;
+    }
+
+    /**
+     * Computes a digest of the file while it's written, and throws a DownloadChecksumException at the end if it isn't
+     * the expected hex digest. What has been written by then stays at the target.
+     */
+    public Download setExpectedDigest(String digestAlgorithm, String expectedDigest) {
+        this.digestAlgorithm = digestAlgorithm;
+        this.expectedDigest = expectedDigest;
+        return this;
+    }
+
+    public boolean isResumeExisting() {
+        return resumeExisting;
+    }
+
+    /**
+     * Keeps what is already at the path and only downloads the rest, e.g. to pick up an export that was interrupted.
+     * A file that is already complete costs a request but is not downloaded again. When Blackboard doesn't support
+     * ranges, an existing file of the right size is kept and any other is downloaded again. Until it completes, the
+     * download keeps the ETag of the file in {@code <file name>.validator}, so a partial file is only resumed while
+     * Blackboard still serves the same version. Only for Path targets.
+     */
+    public Download setResumeExisting(boolean resumeExisting) {
+        if (resumeExisting && path == null) {
+            throw new IllegalStateException("Only a download to a Path can resume an existing file");
+        }
+        this.resumeExisting = resumeExisting;
+        return this;
+    }
+
+    public int getMaxResumes() {
+        return maxResumes;
+    }
+
+    /**
+     * How many times a download is resumed after the connection dropped before giving up. Defaults to 3.
+     */
+    public Download setMaxResumes(int maxResumes) {
+        if (maxResumes < 0) {
+            throw new IllegalArgumentException("maxResumes must not be negative");
+        }
+        this.maxResumes = maxResumes;
+        return this;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Size of the chunks the file is copied in, and so how often progress is reported. Defaults to 64 KiB.
+     */
+    public Download setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+}
@@ -0,0 +1,23 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * Thrown when a downloaded file doesn't match the digest it was expected to have.
+ */
+public class DownloadChecksumException extends RuntimeException {
+    private final String expected;
+    private final String actual;
+
+    public DownloadChecksumException(String algorithm, String expected, String actual) {
+        super(String.format("%s of the download is %s instead of %s", algorithm, actual, expected));
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public String getExpected() {
+        return expected;
+    }
+
+    public String getActual() {
+        return actual;
+    }
+}
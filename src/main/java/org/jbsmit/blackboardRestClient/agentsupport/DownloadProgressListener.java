@@ -0,0 +1,15 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * Follows the progress of a Download.
+ */
+@FunctionalInterface
+public interface DownloadProgressListener {
+    /**
+     * Called every time a chunk of the file has been written to the target.
+     *
+     * @param bytesWritten Bytes written so far, including those written before the download was resumed
+     * @param totalBytes Size of the file, or -1 if Blackboard didn't tell
+     */
+    void onProgress(long bytesWritten, long totalBytes);
+}
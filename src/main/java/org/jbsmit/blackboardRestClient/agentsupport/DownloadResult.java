@@ -0,0 +1,71 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * What a Download wrote to its target.
+ */
+public class DownloadResult {
+    private final long bytes;
+    private final long bytesDownloaded;
+    private final String contentType;
+    private final String fileName;
+    private final String digest;
+    private final int resumeCount;
+
+    DownloadResult(
+            long bytes,
+            long bytesDownloaded,
+            String contentType,
+            String fileName,
+            String digest,
+            int resumeCount) {
+        this.bytes = bytes;
+        this.bytesDownloaded = bytesDownloaded;
+        this.contentType = contentType;
+        this.fileName = fileName;
+        this.digest = digest;
+        this.resumeCount = resumeCount;
+    }
+
+    /**
+     * @return The size of the file at the target
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return The bytes received this time, which is less than getBytes when an existing file was resumed, and 0 when
+     * it was already complete
+     */
+    public long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    /**
+     * @return The Content-Type Blackboard sent, or null
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The file name from the Content-Disposition header, or null
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return The lowercase hex digest of the file if the Download asked for one, or null
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return How many times the download was resumed after the connection dropped
+     */
+    public int getResumeCount() {
+        return resumeCount;
+    }
+}
@@ -0,0 +1,267 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.common.io.BaseEncoding;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * The state of one Download over its attempts: the open target, the bytes written so far and the validator needed to
+ * resume it.
+ *
+ * When an existing file is resumed, the validator is also kept next to it in {@code <file name>.validator} until the
+ * download completes, so a later run only keeps the partial file if Blackboard still serves the same version.
+ */
+class DownloadTransfer implements ResponseBodyReader<Long>, Closeable {
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+    private static final Pattern FILE_NAME = Pattern.compile("filename\\*?=\\s*(?:UTF-8'')?\"?([^\";]+)\"?");
+
+    private final Download download;
+    private final WritableByteChannel channel;
+    private final FileChannel fileChannel;
+    private final MessageDigest digest;
+    private final ByteBuffer buffer;
+    private final Path validatorPath;
+    private long written;
+    private long downloaded;
+    private boolean verifyExisting;
+    private long totalBytes = -1;
+    // The ETag, or else the Last-Modified date, to send as If-Range
+    private String validator;
+    private String contentType;
+    private String fileName;
+    private int resumeCount;
+
+    DownloadTransfer(Download download) throws IOException {
+        this.download = download;
+        if (download.getPath() != null && download.isResumeExisting()) {
+            fileChannel = FileChannel.open(download.getPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            channel = fileChannel;
+        } else if (download.getPath() != null) {
+            fileChannel = FileChannel.open(download.getPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channel = fileChannel;
+        } else {
+            fileChannel = null;
+            channel = download.getChannel();
+        }
+        digest = createDigest(download.getDigestAlgorithm());
+        buffer = fileChannel != null
+                ? ByteBuffer.allocateDirect(download.getChunkSize())
+                : ByteBuffer.allocate(download.getChunkSize());
+        validatorPath = download.isResumeExisting()
+                ? download.getPath().resolveSibling(download.getPath().getFileName() + ".validator")
+                : null;
+        if (download.isResumeExisting()) {
+            written = fileChannel.size();
+            if (written > 0 && Files.exists(validatorPath)) {
+                validator = Files.readString(validatorPath, StandardCharsets.US_ASCII).trim();
+            }
+            verifyExisting = written > 0;
+            if (digest != null) {
+                digestExisting();
+            }
+            fileChannel.position(written);
+        }
+    }
+
+    /**
+     * @return true until Blackboard has told whether the file that was already at the path can be kept
+     */
+    boolean isVerifyingExisting() {
+        return verifyExisting;
+    }
+
+    /**
+     * Asks for the rest of the file once part of it has been written, and only if it's still the same file. An
+     * existing file without a validator, e.g. one that was put there by hand, is trusted to be the same file.
+     */
+    void prepareResume(RestCall<?> restCall) {
+        if (written == 0) {
+            return;
+        }
+        if (verifyExisting) {
+            // Overlap by one byte, so a file that is already complete still gets a 206 that tells its size
+            restCall.addHeader("Range", "bytes=" + (written - 1) + "-");
+        } else {
+            resumeCount++;
+            restCall.addHeader("Range", "bytes=" + written + "-");
+        }
+        if (validator != null) {
+            restCall.addHeader("If-Range", validator);
+        }
+    }
+
+    int getResumeCount() {
+        return resumeCount;
+    }
+
+    @Override
+    public Long read(ResponseBody body) throws IOException {
+        return copy(body, 0);
+    }
+
+    @Override
+    public Long read(Response response, ResponseBody body) throws IOException {
+        var skip = 0L;
+        if (response.code() == 206) {
+            var contentRange = CONTENT_RANGE.matcher(String.valueOf(response.header("Content-Range")));
+            var start = contentRange.matches() ? Long.parseLong(contentRange.group(1)) : -1;
+            if (start != written && !(verifyExisting && start == written - 1)) {
+                throw new IllegalStateException("Unexpected Content-Range " + response.header("Content-Range"));
+            }
+            skip = written - start;
+            if (!contentRange.group(2).equals("*")) {
+                totalBytes = Long.parseLong(contentRange.group(2));
+            }
+        } else {
+            // Without a range Blackboard sends the whole file. What has been written can only be kept if it's
+            // certainly the same file. With If-Range, the validators tell whether the file changed or the server just
+            // ignored the range. Without one, an existing file has to match in size.
+            var ifRange = response.request().header("If-Range");
+            var sameFile = ifRange != null
+                    ? ifRange.equals(response.header("ETag")) || ifRange.equals(response.header("Last-Modified"))
+                    : !verifyExisting || body.contentLength() == written;
+            if (written > 0 && !sameFile) {
+                restart();
+            }
+            skip = written;
+            totalBytes = body.contentLength();
+            validator = response.header("ETag") != null ? response.header("ETag") : response.header("Last-Modified");
+            saveValidator();
+        }
+        contentType = body.contentType() != null ? String.valueOf(body.contentType()) : null;
+        var contentDisposition = response.header("Content-Disposition");
+        if (contentDisposition != null) {
+            var matcher = FILE_NAME.matcher(contentDisposition);
+            fileName = matcher.find() ? matcher.group(1) : null;
+        }
+        verifyExisting = false;
+        return copy(body, skip);
+    }
+
+    private long copy(ResponseBody body, long skip) throws IOException {
+        var source = body.source();
+        source.skip(skip);
+        while (true) {
+            buffer.clear();
+            if (source.read(buffer) == -1) {
+                return written;
+            }
+            buffer.flip();
+            if (digest != null) {
+                digest.update(buffer.duplicate());
+            }
+            // Failing to write the target is not worth resuming for, so don't let it pass as a network failure
+            try {
+                while (buffer.hasRemaining()) {
+                    var bytes = channel.write(buffer);
+                    written += bytes;
+                    downloaded += bytes;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            download.getProgressListener().onProgress(written, totalBytes);
+        }
+    }
+
+    /**
+     * Drops what has been written and starts over, e.g. when Blackboard's version of the file differs from what is
+     * there.
+     */
+    void restart() {
+        if (fileChannel == null) {
+            throw new IllegalStateException("The file changed on the server while it was downloaded");
+        }
+        try {
+            fileChannel.truncate(0);
+            fileChannel.position(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (digest != null) {
+            digest.reset();
+        }
+        written = 0;
+        verifyExisting = false;
+    }
+
+    private void saveValidator() {
+        if (validatorPath == null) {
+            return;
+        }
+        try {
+            if (validator != null) {
+                Files.writeString(validatorPath, validator, StandardCharsets.US_ASCII);
+            } else {
+                Files.deleteIfExists(validatorPath);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void digestExisting() throws IOException {
+        var position = 0L;
+        while (position < written) {
+            buffer.clear();
+            var read = fileChannel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+    }
+
+    /**
+     * @throws DownloadChecksumException if the digest isn't what was expected
+     */
+    DownloadResult finish() throws IOException {
+        if (fileChannel != null) {
+            fileChannel.force(false);
+        }
+        if (validatorPath != null) {
+            Files.deleteIfExists(validatorPath);
+        }
+        var hexDigest = digest != null ? BaseEncoding.base16().lowerCase().encode(digest.digest()) : null;
+        if (download.getExpectedDigest() != null && !download.getExpectedDigest().equalsIgnoreCase(hexDigest)) {
+            throw new DownloadChecksumException(download.getDigestAlgorithm(), download.getExpectedDigest(), hexDigest);
+        }
+        return new DownloadResult(written, downloaded, contentType, fileName, hexDigest, resumeCount);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileChannel != null) {
+            fileChannel.close();
+        }
+    }
+
+    private static MessageDigest createDigest(String algorithm) {
+        if (algorithm == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm " + algorithm, e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Metrics of a single endpoint at the time of an {@link InMemoryInstrumentation#snapshot()}.
+ */
+public class EndpointMetrics {
+    private final MethodType method;
+    private final String urlTemplate;
+    private final Map<Integer, Long> statusCounts;
+    private final long failureCount;
+    private final long bytesOut;
+    private final long bytesIn;
+    private final long pageCount;
+    private final long itemCount;
+    private final LatencyHistogram latency;
+    private final LatencyHistogram deserialization;
+
+    EndpointMetrics(
+            MethodType method,
+            String urlTemplate,
+            Map<Integer, Long> statusCounts,
+            long failureCount,
+            long bytesOut,
+            long bytesIn,
+            long pageCount,
+            long itemCount,
+            LatencyHistogram latency,
+            LatencyHistogram deserialization) {
+        this.method = method;
+        this.urlTemplate = urlTemplate;
+        this.statusCounts = Collections.unmodifiableMap(statusCounts);
+        this.failureCount = failureCount;
+        this.bytesOut = bytesOut;
+        this.bytesIn = bytesIn;
+        this.pageCount = pageCount;
+        this.itemCount = itemCount;
+        this.latency = latency;
+        this.deserialization = deserialization;
+    }
+
+    public MethodType getMethod() {
+        return method;
+    }
+
+    public String getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    /**
+     * @return The number of HTTP exchanges, including retried and failed ones
+     */
+    public long getRequestCount() {
+        return statusCounts.values().stream().mapToLong(Long::longValue).sum() + failureCount;
+    }
+
+    /**
+     * @return The number of responses per status code, in ascending order of status code
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        return statusCounts;
+    }
+
+    /**
+     * @return The number of exchanges that failed without a response
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * @return The total number of items on all pages
+     */
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * @return Time from sending a request until its response headers arrived
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return Time spent decoding response bodies
+     */
+    public LatencyHistogram getDeserialization() {
+        return deserialization;
+    }
+}
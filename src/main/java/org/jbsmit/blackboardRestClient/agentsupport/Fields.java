@@ -0,0 +1,98 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A projection of a model class, sent as Learn's 'fields' query parameter so only the named properties are returned.
+ * Nested properties are named with a dot, e.g. name.given. The names are checked against the model when the
+ * projection is created, and again against the RestCall it is set on.
+ *
+ * <pre>
+ * var restCall = UsersApi.getUsers();
+ * restCall.setFields(Fields.of(User.class, "id", "userName", "externalId"));
+ * </pre>
+ *
+ * The properties that are left out are null in the decoded models, or 0 and false for primitive properties.
+ *
+ * @param <T> The model class
+ */
+public final class Fields<T> {
+    private final Class<T> model;
+    private final List<String> paths;
+
+    private Fields(Class<T> model, List<String> paths) {
+        this.model = model;
+        this.paths = paths;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a path doesn't name a property of the model
+     */
+    public static <T> Fields<T> of(Class<T> model, String... paths) {
+        if (paths.length == 0) {
+            throw new IllegalArgumentException("No fields of " + model.getSimpleName() + " given");
+        }
+        for (var path : paths) {
+            checkPath(model, path);
+        }
+        return new Fields<>(model, List.of(paths));
+    }
+
+    public Class<T> getModel() {
+        return model;
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * @return The model class the items of restCall are decoded to: T for a RestCall&lt;T&gt; and for a
+     * RestCall&lt;List&lt;T&gt;&gt;
+     */
+    static Class<?> itemModelOf(TypeToken<?> returnType) {
+        var type = returnType.getType();
+        if (Collection.class.isAssignableFrom(returnType.getRawType()) && type instanceof ParameterizedType) {
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        return TypeToken.get(type).getRawType();
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", paths);
+    }
+
+    private static void checkPath(Class<?> model, String path) {
+        var type = (Type) model;
+        for (var name : path.split("\\.", -1)) {
+            var field = findField(TypeToken.get(type).getRawType(), name);
+            if (field == null) {
+                throw new IllegalArgumentException(
+                        String.format("'%s' is not a property of %s", path, model.getSimpleName()));
+            }
+            type = field.getGenericType();
+            if (Collection.class.isAssignableFrom(field.getType()) && type instanceof ParameterizedType) {
+                type = ((ParameterizedType) type).getActualTypeArguments()[0];
+            }
+        }
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (var current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (var field : current.getDeclaredFields()) {
+                if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -1,27 +1,352 @@
 package org.jbsmit.blackboardRestClient.agentsupport;
 
+import com.google.common.cache.CacheBuilder;
 import okhttp3.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class HttpClient {
+    // Weak, so an entry goes away with the last client that uses it
+    private static final Map<String, OkHttpClient> sharedClients =
+            CacheBuilder.newBuilder().weakValues().<String, OkHttpClient>build().asMap();
+
     private final String blackboardUrl;
     private final OkHttpClient httpClient;
+    // Holds on to the shared entry in sharedClients, as derived clients only reference its pool and dispatcher
+    private final OkHttpClient baseClient;
+    // Downloads and uploads take as long as the file needs, so only the read and write timeouts catch stalled ones
+    private final OkHttpClient transferClient;
+    private final WireLogging wireLogging;
+    private final RetryPolicy retryPolicy;
+    private final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter();
+    private final RequestQuota requestQuota;
+    private final CallPriority defaultPriority;
+    private final Instrumentation instrumentation;
+    private final ResponseCache responseCache;
+    private final InFlightRequests inFlightRequests;
+    private final ExecutorService quotaWaitExecutor = VirtualThreads.newThreadPerTaskExecutor("blackboard-quota-%d");
 
     public HttpClient(String blackboardUrl) {
-        this.blackboardUrl = blackboardUrl;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(Duration.ofSeconds(30))
-                .readTimeout(Duration.ofMinutes(2))
-                .writeTimeout(Duration.ofMinutes(2))
-                .callTimeout(Duration.ofMinutes(5))
+        this(new BlackboardConfig(blackboardUrl, null));
+    }
+
+    public HttpClient(BlackboardConfig blackboardConfig) {
+        this.blackboardUrl = blackboardConfig.getUrl();
+        this.wireLogging = blackboardConfig.getWireLogging();
+        this.retryPolicy = blackboardConfig.getRetryPolicy();
+        this.requestQuota = blackboardConfig.getRequestQuota();
+        this.defaultPriority = blackboardConfig.getDefaultPriority();
+        this.instrumentation = blackboardConfig.getInstrumentation();
+        this.responseCache = blackboardConfig.getResponseCache();
+        this.inFlightRequests = new InFlightRequests(blackboardConfig.isCoalesceRequests());
+        this.baseClient = createBaseClient(blackboardConfig.getConnectionSettings());
+        this.httpClient = createHttpClient(baseClient, blackboardConfig.getConnectionSettings());
+        this.transferClient = httpClient.newBuilder().callTimeout(Duration.ZERO).build();
+    }
+
+    /**
+     * Agents only share a pool and dispatcher when they target the same host with the same limits.
+     */
+    private OkHttpClient createBaseClient(ConnectionSettings connectionSettings) {
+        if (!connectionSettings.isShareConnectionPool()) {
+            return newBaseClient(connectionSettings);
+        }
+        var key = String.join(" ",
+                hostOf(blackboardUrl),
+                String.valueOf(connectionSettings.getMaxRequests()),
+                String.valueOf(connectionSettings.getMaxRequestsPerHost()),
+                String.valueOf(connectionSettings.getMaxIdleConnections()),
+                String.valueOf(connectionSettings.getKeepAlive()));
+        return sharedClients.computeIfAbsent(key, k -> newBaseClient(connectionSettings));
+    }
+
+    private static OkHttpClient createHttpClient(OkHttpClient baseClient, ConnectionSettings connectionSettings) {
+        var protocols = connectionSettings.isHttp2Enabled()
+                ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : List.of(Protocol.HTTP_1_1);
+
+        return baseClient.newBuilder()
+                .connectTimeout(connectionSettings.getConnectTimeout())
+                .readTimeout(connectionSettings.getReadTimeout())
+                .writeTimeout(connectionSettings.getWriteTimeout())
+                .callTimeout(connectionSettings.getCallTimeout())
+                .protocols(protocols)
                 .build();
     }
 
+    private static OkHttpClient newBaseClient(ConnectionSettings connectionSettings) {
+        var dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(connectionSettings.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(connectionSettings.getMaxRequestsPerHost());
+
+        var connectionPool = new ConnectionPool(
+                connectionSettings.getMaxIdleConnections(),
+                connectionSettings.getKeepAlive().toMillis(),
+                TimeUnit.MILLISECONDS);
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .build();
+    }
+
+    private static String hostOf(String blackboardUrl) {
+        var httpUrl = HttpUrl.parse(blackboardUrl);
+        return httpUrl != null ? httpUrl.scheme() + "://" + httpUrl.host() + ":" + httpUrl.port() : blackboardUrl;
+    }
+
     public String run(RestCall<?> restCall) {
+        return run(restCall, ResponseBody::string);
+    }
+
+    /**
+     * Runs the call and hands the body of a successful response to bodyReader, which can decode it while it streams
+     * in.
+     */
+    public <R> R run(RestCall<?> restCall, ResponseBodyReader<R> bodyReader) {
+        return inFlightRequests.run(
+                coalescingKey(restCall, bodyReader),
+                () -> execute(httpClient, restCall, bodyReader, true));
+    }
+
+    /**
+     * Downloads a file to the target of download, resuming with a Range request when the connection drops halfway.
+     * Downloads bypass the ResponseCache and are never coalesced, as every one writes to its own target. The call
+     * timeout doesn't apply to them.
+     *
+     * @param authorize Adds the Authorization header to every attempt
+     */
+    public DownloadResult download(RestCall<?> restCall, Download download, Consumer<RestCall<?>> authorize) {
+        try (var transfer = new DownloadTransfer(download)) {
+            for (var attempt = 0; ; attempt++) {
+                var attemptCall = restCall.copy();
+                authorize.accept(attemptCall);
+                transfer.prepareResume(attemptCall);
+                try {
+                    execute(transferClient, attemptCall, transfer, false);
+                    return transfer.finish();
+                } catch (HttpStatusException e) {
+                    // An existing file that is larger than Blackboard's version makes the range unsatisfiable
+                    if (e.getStatusCode() != 416 || !transfer.isVerifyingExisting()) {
+                        throw e;
+                    }
+                    transfer.restart();
+                } catch (RuntimeException e) {
+                    var networkFailure = e.getClass() == RuntimeException.class && e.getCause() instanceof IOException;
+                    if (!networkFailure || attempt >= download.getMaxResumes()) {
+                        throw e;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <R> R execute(
+            OkHttpClient client,
+            RestCall<?> restCall,
+            ResponseBodyReader<R> bodyReader,
+            boolean cacheable) {
+        for (var attempt = 0; ; attempt++) {
+            rateLimiter.acquire();
+            requestQuota.acquire(getPriority(restCall));
+            var exchange = new Exchange(restCall, attempt, bodyReader, cacheable);
+            var call = clientFor(client, restCall).newCall(exchange.request);
+            Duration backoff;
+            try (var response = call.execute()) {
+                exchange.onHeaders();
+                onQuotaResponse(response);
+                onThrottled(response);
+                if (!retryPolicy.isRetryable(restCall, response, attempt)) {
+                    onAccepted(response);
+                    return readResponse(exchange, response, bodyReader);
+                }
+                backoff = onRetryableResponse(exchange, response);
+            } catch (IOException e) {
+                exchange.onFailure(e);
+                throw new RuntimeException(e);
+            }
+            sleep(backoff);
+        }
+    }
+
+    /**
+     * Enqueues the call on OkHttp's dispatcher instead of blocking the calling thread. The future completes with the
+     * response body, or exceptionally with the same exceptions run would throw. Cancelling the future cancels the call,
+     * unless it's a GET coalesced with identical ones.
+     */
+    public CompletableFuture<String> runAsync(RestCall<?> restCall) {
+        return runAsync(restCall, ResponseBody::string);
+    }
+
+    public <R> CompletableFuture<R> runAsync(RestCall<?> restCall, ResponseBodyReader<R> bodyReader) {
+        return inFlightRequests.runAsync(
+                coalescingKey(restCall, bodyReader),
+                () -> executeAsync(restCall, bodyReader));
+    }
+
+    private <R> CompletableFuture<R> executeAsync(RestCall<?> restCall, ResponseBodyReader<R> bodyReader) {
+        var future = new CompletableFuture<R>();
+        var currentCall = new AtomicReference<Call>();
+        enqueue(restCall, bodyReader, 0, Duration.ofNanos(rateLimiter.reserve()), future, currentCall);
+        future.whenComplete((body, e) -> {
+            var call = currentCall.get();
+            if (future.isCancelled() && call != null) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private <R> void enqueue(
+            RestCall<?> restCall,
+            ResponseBodyReader<R> bodyReader,
+            int attempt,
+            Duration delay,
+            CompletableFuture<R> future,
+            AtomicReference<Call> currentCall) {
+        var executor = delay.isZero() || delay.isNegative()
+                ? (Executor) Runnable::run
+                : CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS);
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            if (requestQuota.isUnlimited()) {
+                // Report failures through the future, also when this runs on the caller's or a timer thread
+                try {
+                    send(restCall, bodyReader, attempt, future, currentCall);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            } else {
+                // Waiting for the quota blocks, so keep it off OkHttp's dispatcher threads
+                quotaWaitExecutor.execute(() -> {
+                    try {
+                        requestQuota.acquire(getPriority(restCall));
+                        send(restCall, bodyReader, attempt, future, currentCall);
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            }
+        });
+    }
+
+    private <R> void send(
+            RestCall<?> restCall,
+            ResponseBodyReader<R> bodyReader,
+            int attempt,
+            CompletableFuture<R> future,
+            AtomicReference<Call> currentCall) {
+        var exchange = new Exchange(restCall, attempt, bodyReader, true);
+        var call = clientFor(httpClient, restCall).newCall(exchange.request);
+        currentCall.set(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                exchange.onFailure(e);
+                future.completeExceptionally(new RuntimeException(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                exchange.onHeaders();
+                try (response) {
+                    onQuotaResponse(response);
+                    onThrottled(response);
+                    if (retryPolicy.isRetryable(restCall, response, attempt)) {
+                        var backoff = onRetryableResponse(exchange, response);
+                        var wait = Duration.ofNanos(rateLimiter.reserve());
+                        enqueue(restCall, bodyReader, attempt + 1, backoff.compareTo(wait) > 0 ? backoff : wait,
+                                future, currentCall);
+                    } else {
+                        onAccepted(response);
+                        future.complete(readResponse(exchange, response, bodyReader));
+                    }
+                } catch (IOException e) {
+                    future.completeExceptionally(new RuntimeException(e));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Streamed request bodies, like those of an Upload, take as long as the file needs, so they don't get a call
+     * timeout either.
+     */
+    private OkHttpClient clientFor(OkHttpClient client, RestCall<?> restCall) {
+        return restCall.getRequestBody() != null ? transferClient : client;
+    }
+
+    private void onQuotaResponse(Response response) {
+        requestQuota.onResponse(response);
+        var remaining = requestQuota.getRemainingDailyBudget();
+        if (remaining != Long.MAX_VALUE) {
+            instrumentation.onRemainingDailyBudget(remaining);
+        }
+    }
+
+    /**
+     * Slows down all calls on a 429, also when the call itself isn't retried, e.g. a PATCH or the last attempt.
+     */
+    private void onThrottled(Response response) {
+        if (response.code() == 429) {
+            rateLimiter.onThrottled(RetryPolicy.getRetryAfter(response));
+        }
+    }
+
+    /**
+     * Lets the rate limiter speed up again, but only on responses that show the server is coping. Error responses
+     * aren't a sign of that.
+     */
+    private void onAccepted(Response response) {
+        if (response.isSuccessful() || response.code() == 304) {
+            rateLimiter.onSuccess();
+        }
+    }
+
+    private InFlightRequests.Key coalescingKey(RestCall<?> restCall, ResponseBodyReader<?> bodyReader) {
+        return inFlightRequests.isEnabled() && restCall.getMethodType() == MethodType.GET
+                ? inFlightRequests.keyFor(restCall, buildRequest(restCall).url(), bodyReader)
+                : null;
+    }
+
+    private CallPriority getPriority(RestCall<?> restCall) {
+        return restCall.getPriority() != null ? restCall.getPriority() : defaultPriority;
+    }
+
+    private Duration onRetryableResponse(Exchange exchange, Response response) throws IOException {
+        wireLogging.log(exchange.restCall, response);
+        exchange.onResponse(response, 0);
+        return retryPolicy.getBackoff(exchange.attempt, RetryPolicy.getRetryAfter(response));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    Request buildRequest(RestCall<?> restCall) {
         var endPoint = restCall.getUrl();
         for (var entry : restCall.getPathParameters().entrySet()) {
             endPoint = endPoint.replace("{" + entry.getKey() + "}", entry.getValue());
@@ -30,7 +355,10 @@ public class HttpClient {
         var httpUrl = Objects.requireNonNull(HttpUrl.parse(blackboardUrl + endPoint));
         var urlBuilder = httpUrl.newBuilder();
         for (var entry : restCall.getParameters().entrySet()) {
-            urlBuilder.addQueryParameter(entry.getKey(), entry.getValue());
+            // A nextPage url already carries the parameters, with the offset of that page
+            if (httpUrl.querySize() == 0 || httpUrl.queryParameter(entry.getKey()) == null) {
+                urlBuilder.addQueryParameter(entry.getKey(), entry.getValue());
+            }
         }
 
         var requestBuilder = (new Request.Builder())
@@ -41,31 +369,106 @@ public class HttpClient {
             requestBuilder.header(header.getKey(), header.getValue());
         }
 
-        var requestBody = (RequestBody)null;
-        if(restCall.getBody() != null) {
+        var requestBody = restCall.getRequestBody();
+        if(requestBody == null && restCall.getBody() != null) {
             requestBody = RequestBody.create(restCall.getContentType(), restCall.getBody());
         }
         requestBuilder.method(restCall.getMethodType().name(), requestBody);
 
-        var call = httpClient.newCall(requestBuilder.build());
-        try (var response = call.execute()) {
-            var body = Objects.requireNonNull(response.body());
-            if (response.code() == 404) {
-                throw new UnsupportedOperationException(String.format("'%s' not found \n\n%s",
-                        restCall.getUrl(),
-                        body.string()));
-            }
+        return requestBuilder.build();
+    }
+
+    private <R> R readResponse(Exchange exchange, Response response, ResponseBodyReader<R> bodyReader)
+            throws IOException {
+        wireLogging.log(exchange.restCall, response);
+        if (response.code() == 304 && exchange.cached != null) {
+            exchange.onResponse(response, 0);
+            //noinspection unchecked
+            return (R) exchange.cached.getValue();
+        }
 
-            var validCodes = Set.of(200, 201, 204);
-            if (!validCodes.contains(response.code())) {
-                System.out.println("Unexpected response code " + response.code());
-                throw new RuntimeException(body.string());
+        var body = new CountingResponseBody(Objects.requireNonNull(response.body()));
+        try {
+            var result = readBody(exchange.restCall, response, body, bodyReader);
+            if (exchange.restCall.getMethodType() == MethodType.GET) {
+                responseCache.put(exchange.cacheKey, response, result, body.getBytesRead());
+            } else {
+                responseCache.invalidate(response.request().url());
             }
+            return result;
+        } finally {
+            exchange.onResponse(response, body.getBytesRead());
+        }
+    }
 
-            return Objects.requireNonNull(body).string();
+    private static <R> R readBody(
+            RestCall<?> restCall,
+            Response response,
+            ResponseBody body,
+            ResponseBodyReader<R> bodyReader) throws IOException {
+        if (response.code() == 404) {
+            throw new UnsupportedOperationException(String.format("'%s' not found \n\n%s",
+                    restCall.getUrl(),
+                    body.string()));
+        }
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        var validCodes = Set.of(200, 201, 204, 206);
+        if (!validCodes.contains(response.code())) {
+            throw new HttpStatusException(response.code(), body.string(), RetryPolicy.getRetryAfter(response));
+        }
+
+        return bodyReader.read(response, body);
+    }
+
+    /**
+     * A single attempt of a call, reported to the Instrumentation and as a RestCallEvent once it's done. A cacheable
+     * GET that has a cached response carries its validators.
+     */
+    private class Exchange {
+        private final RestCall<?> restCall;
+        private final int attempt;
+        private final Request request;
+        private final ResponseCache.Key cacheKey;
+        private final ResponseCache.Entry cached;
+        private final RestCallEvent event = new RestCallEvent();
+        private final long start;
+        private long responseNanos;
+        // A body that fails while it's read is reported by readResponse and again by the caller's catch
+        private boolean completed;
+
+        Exchange(RestCall<?> restCall, int attempt, ResponseBodyReader<?> bodyReader, boolean cacheable) {
+            this.restCall = restCall;
+            this.attempt = attempt;
+            var request = buildRequest(restCall);
+            this.cacheKey = cacheable ? responseCache.keyFor(restCall, request.url(), bodyReader) : null;
+            this.cached = responseCache.get(cacheKey);
+            this.request = cached != null ? cached.addValidators(request) : request;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        void onHeaders() {
+            responseNanos = System.nanoTime() - start;
+        }
+
+        void onResponse(Response response, long bytesIn) throws IOException {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            var requestBody = response.request().body();
+            var bytesOut = requestBody != null ? Math.max(0, requestBody.contentLength()) : 0;
+            instrumentation.onResponse(restCall, response.code(), responseNanos, bytesOut, bytesIn);
+            event.commit(restCall, attempt, response.code(), bytesOut, bytesIn);
+        }
+
+        void onFailure(IOException exception) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            instrumentation.onFailure(restCall, exception, System.nanoTime() - start);
+            event.commit(restCall, attempt, 0, 0, 0);
         }
     }
 }
@@ -0,0 +1,38 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import java.time.Duration;
+
+/**
+ * Thrown when Blackboard answers a RestCall with an unexpected status code.
+ */
+public class HttpStatusException extends RuntimeException {
+    private final int statusCode;
+    private final String body;
+    private final Duration retryAfter;
+
+    public HttpStatusException(int statusCode, String body) {
+        this(statusCode, body, null);
+    }
+
+    public HttpStatusException(int statusCode, String body, Duration retryAfter) {
+        super(String.format("Unexpected response code %d\n\n%s", statusCode, body));
+        this.statusCode = statusCode;
+        this.body = body;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return How long the server asked to wait before trying again, or null when it sent no Retry-After header
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
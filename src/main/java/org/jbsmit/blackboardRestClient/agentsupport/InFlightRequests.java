@@ -0,0 +1,144 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.HttpUrl;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical GETs. While a GET is in flight, other GETs of the same url, with the same
+ * Authorization header, decoded to the same type, wait for it and get its result (or its exception) instead of
+ * sending their own request. Once the result is in, the next GET goes to the server again; nothing is cached.
+ */
+class InFlightRequests {
+    private final boolean enabled;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    InFlightRequests(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The key identical calls share, or null if this call must not be coalesced
+     */
+    Key keyFor(RestCall<?> restCall, HttpUrl url, ResponseBodyReader<?> bodyReader) {
+        if (!enabled || restCall.getMethodType() != MethodType.GET) {
+            return null;
+        }
+        var returnType = restCall.getReturnType() != null ? restCall.getReturnType().getType() : null;
+        return new Key(url, restCall.getHeaders().get("Authorization"), returnType, bodyReader.getClass());
+    }
+
+    /**
+     * Runs call, unless an identical call is already in flight, in which case it waits for that one.
+     */
+    <R> R run(Key key, Supplier<R> call) {
+        if (key == null) {
+            return call.get();
+        }
+        var future = new CompletableFuture<Object>();
+        var leader = inFlight.putIfAbsent(key, future);
+        if (leader != null) {
+            return await(leader);
+        }
+        try {
+            var result = call.get();
+            inFlight.remove(key, future);
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Like run, without blocking. Cancelling the returned future only detaches this caller; the request itself is
+     * only cancelled when it was started for this caller alone.
+     */
+    <R> CompletableFuture<R> runAsync(Key key, Supplier<CompletableFuture<R>> call) {
+        if (key == null) {
+            return call.get();
+        }
+        var future = new CompletableFuture<Object>();
+        var leader = inFlight.putIfAbsent(key, future);
+        if (leader != null) {
+            //noinspection unchecked
+            return leader.thenApply(result -> (R) result);
+        }
+        CompletableFuture<R> started;
+        try {
+            started = call.get();
+        } catch (Throwable e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((result, e) -> {
+            inFlight.remove(key, future);
+            if (e != null) {
+                future.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            } else {
+                future.complete(result);
+            }
+        });
+        //noinspection unchecked
+        return future.thenApply(result -> (R) result);
+    }
+
+    private static <R> R await(CompletableFuture<Object> leader) {
+        try {
+            //noinspection unchecked
+            return (R) leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    static class Key {
+        private final String url;
+        private final String authorization;
+        private final Type returnType;
+        private final Class<?> readerClass;
+
+        Key(HttpUrl url, String authorization, Type returnType, Class<?> readerClass) {
+            this.url = url.toString();
+            this.authorization = authorization;
+            this.returnType = returnType;
+            this.readerClass = readerClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            var key = (Key) o;
+            return url.equals(key.url)
+                    && Objects.equals(authorization, key.authorization)
+                    && Objects.equals(returnType, key.returnType)
+                    && readerClass == key.readerClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, authorization, returnType, readerClass);
+        }
+    }
+}
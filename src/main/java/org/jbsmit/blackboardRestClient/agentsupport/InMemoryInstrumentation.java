@@ -0,0 +1,186 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps per endpoint metrics in memory. An endpoint is a method and url template, e.g.
+ * GET /learn/api/public/v1/users/{userId}.
+ *
+ * <pre>
+ * var metrics = InMemoryInstrumentation.create();
+ * var agent = new BlackboardAgent(new BlackboardConfig(url, secret).setInstrumentation(metrics));
+ * ...
+ * Files.writeString(path, metrics.toJson());
+ * </pre>
+ */
+public class InMemoryInstrumentation implements Instrumentation {
+    private final Map<String, EndpointRecorder> endpoints = new ConcurrentHashMap<>();
+    private volatile long remainingDailyBudget = Long.MAX_VALUE;
+
+    public static InMemoryInstrumentation create() {
+        return new InMemoryInstrumentation();
+    }
+
+    @Override
+    public void onResponse(RestCall<?> restCall, int statusCode, long durationNanos, long bytesOut, long bytesIn) {
+        var recorder = recorderFor(restCall);
+        recorder.statusCounts.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        recorder.latency.record(durationNanos);
+        recorder.bytesOut.add(bytesOut);
+        recorder.bytesIn.add(bytesIn);
+    }
+
+    @Override
+    public void onFailure(RestCall<?> restCall, Exception exception, long durationNanos) {
+        var recorder = recorderFor(restCall);
+        recorder.failures.increment();
+        recorder.latency.record(durationNanos);
+    }
+
+    @Override
+    public void onDeserialized(RestCall<?> restCall, long durationNanos) {
+        recorderFor(restCall).deserialization.record(durationNanos);
+    }
+
+    @Override
+    public void onPage(RestCall<?> restCall, int itemCount) {
+        var recorder = recorderFor(restCall);
+        recorder.pages.increment();
+        recorder.items.add(itemCount);
+    }
+
+    @Override
+    public void onRemainingDailyBudget(long remainingDailyBudget) {
+        this.remainingDailyBudget = remainingDailyBudget;
+    }
+
+    /**
+     * @return The remaining daily budget of the RequestQuota as of the last response, or Long.MAX_VALUE when it's
+     * unknown
+     */
+    public long getRemainingDailyBudget() {
+        return remainingDailyBudget;
+    }
+
+    /**
+     * @return The metrics recorded so far, one entry per endpoint, sorted by url template and method
+     */
+    public List<EndpointMetrics> snapshot() {
+        var snapshot = new ArrayList<EndpointMetrics>();
+        for (var recorder : endpoints.values()) {
+            snapshot.add(recorder.snapshot());
+        }
+        snapshot.sort(Comparator.comparing(EndpointMetrics::getUrlTemplate).thenComparing(EndpointMetrics::getMethod));
+        return snapshot;
+    }
+
+    /**
+     * Forgets everything recorded so far, e.g. after exporting a snapshot.
+     */
+    public void reset() {
+        endpoints.clear();
+        remainingDailyBudget = Long.MAX_VALUE;
+    }
+
+    /**
+     * @return A snapshot as JSON: per endpoint the counters, latency and deserialization percentiles in milliseconds
+     * and the latency buckets as [upper bound in milliseconds, count] pairs
+     */
+    public String toJson() {
+        var json = new JsonArray();
+        for (var metrics : snapshot()) {
+            var endpoint = new JsonObject();
+            endpoint.addProperty("method", metrics.getMethod().name());
+            endpoint.addProperty("urlTemplate", metrics.getUrlTemplate());
+            endpoint.addProperty("requests", metrics.getRequestCount());
+            endpoint.addProperty("failures", metrics.getFailureCount());
+            var statusCounts = new JsonObject();
+            metrics.getStatusCounts().forEach((code, count) -> statusCounts.addProperty(String.valueOf(code), count));
+            endpoint.add("statusCodes", statusCounts);
+            endpoint.addProperty("bytesOut", metrics.getBytesOut());
+            endpoint.addProperty("bytesIn", metrics.getBytesIn());
+            endpoint.addProperty("pages", metrics.getPageCount());
+            endpoint.addProperty("items", metrics.getItemCount());
+            endpoint.add("latency", toJson(metrics.getLatency(), true));
+            endpoint.add("deserialization", toJson(metrics.getDeserialization(), false));
+            json.add(endpoint);
+        }
+        return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+    }
+
+    private static JsonObject toJson(LatencyHistogram histogram, boolean withBuckets) {
+        var json = new JsonObject();
+        json.addProperty("count", histogram.getCount());
+        json.addProperty("mean", millis(histogram.getMeanNanos()));
+        json.addProperty("p50", millis(histogram.getValueAtPercentile(50)));
+        json.addProperty("p90", millis(histogram.getValueAtPercentile(90)));
+        json.addProperty("p99", millis(histogram.getValueAtPercentile(99)));
+        json.addProperty("p999", millis(histogram.getValueAtPercentile(99.9)));
+        json.addProperty("max", millis(histogram.getMaxNanos()));
+        if (withBuckets) {
+            var buckets = new JsonArray();
+            histogram.forEachBucket((upperBound, count) -> {
+                var bucket = new JsonArray();
+                bucket.add(millis(upperBound));
+                bucket.add(count);
+                buckets.add(bucket);
+            });
+            json.add("buckets", buckets);
+        }
+        return json;
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private EndpointRecorder recorderFor(RestCall<?> restCall) {
+        var method = restCall.getMethodType();
+        var urlTemplate = restCall.getUrlTemplate();
+        return endpoints.computeIfAbsent(method + " " + urlTemplate, key -> new EndpointRecorder(method, urlTemplate));
+    }
+
+    private static class EndpointRecorder {
+        private final MethodType method;
+        private final String urlTemplate;
+        private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder items = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram deserialization = new LatencyHistogram();
+
+        EndpointRecorder(MethodType method, String urlTemplate) {
+            this.method = method;
+            this.urlTemplate = urlTemplate;
+        }
+
+        EndpointMetrics snapshot() {
+            var statusCountsSnapshot = new TreeMap<Integer, Long>();
+            statusCounts.forEach((code, count) -> statusCountsSnapshot.put(code, count.sum()));
+            return new EndpointMetrics(
+                    method,
+                    urlTemplate,
+                    statusCountsSnapshot,
+                    failures.sum(),
+                    bytesOut.sum(),
+                    bytesIn.sum(),
+                    pages.sum(),
+                    items.sum(),
+                    latency.copy(),
+                    deserialization.copy());
+        }
+    }
+}
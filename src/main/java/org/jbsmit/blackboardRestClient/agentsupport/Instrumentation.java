@@ -0,0 +1,49 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * Receives measurements of the calls made by a BlackboardAgent. Calls can be told apart by
+ * {@link RestCall#getUrlTemplate()} and {@link RestCall#getMethodType()}.
+ *
+ * The methods are called on the threads running the calls, so implementations have to be thread-safe and should
+ * return quickly.
+ */
+public interface Instrumentation {
+    Instrumentation NONE = new Instrumentation() {
+    };
+
+    /**
+     * Called once for every HTTP exchange that got a response, including the throttled ones that are retried.
+     *
+     * @param durationNanos Time from sending the request until the response headers arrived
+     * @param bytesOut Size of the request body
+     * @param bytesIn Number of response body bytes read
+     */
+    default void onResponse(RestCall<?> restCall, int statusCode, long durationNanos, long bytesOut, long bytesIn) {
+    }
+
+    /**
+     * Called when an HTTP exchange failed without a response, e.g. because of a timeout.
+     */
+    default void onFailure(RestCall<?> restCall, Exception exception, long durationNanos) {
+    }
+
+    /**
+     * Called when a response body has been decoded. As the body is decoded while it streams in, this includes the
+     * time spent waiting for the rest of the body.
+     */
+    default void onDeserialized(RestCall<?> restCall, long durationNanos) {
+    }
+
+    /**
+     * Called for every page of a paged list result.
+     */
+    default void onPage(RestCall<?> restCall, int itemCount) {
+    }
+
+    /**
+     * Called after every response with {@link RequestQuota#getRemainingDailyBudget()}, once the quota has a daily
+     * budget or Blackboard has reported its remaining quota.
+     */
+    default void onRemainingDailyBudget(long remainingDailyBudget) {
+    }
+}
@@ -5,8 +5,10 @@ import com.google.gson.internal.bind.util.ISO8601Utils;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import okio.ByteString;
+import org.jbsmit.blackboardRestClient.model.ModelTypeAdapterFactory;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -25,17 +27,39 @@ public class JsonDeserializer {
     private final ByteArrayAdapter byteArrayAdapter = new ByteArrayAdapter();
     private final InstantTypeAdapter instantTypeAdapter = new InstantTypeAdapter();
 
-    private final Gson gson = (new GsonBuilder())
-            .registerTypeAdapter(Date.class, dateTypeAdapter)
-            .registerTypeAdapter(java.sql.Date.class, sqlDateTypeAdapter)
-            .registerTypeAdapter(OffsetDateTime.class, offsetDateTimeTypeAdapter)
-            .registerTypeAdapter(LocalDate.class, localDateTypeAdapter)
-            .registerTypeAdapter(byte[].class, byteArrayAdapter)
-            .registerTypeAdapter(Instant.class, instantTypeAdapter)
-            .create();
+    private final Gson gson;
+
+    public JsonDeserializer() {
+        this(true);
+    }
+
+    /**
+     * @param useGeneratedTypeAdapters false to fall back to Gson's reflective adapters for the model classes,
+     *                                 which is only useful to compare the two
+     */
+    JsonDeserializer(boolean useGeneratedTypeAdapters) {
+        var gsonBuilder = new GsonBuilder();
+        if (useGeneratedTypeAdapters) {
+            gsonBuilder.registerTypeAdapterFactory(new ModelTypeAdapterFactory());
+        }
+        gson = gsonBuilder
+                .registerTypeAdapter(Date.class, dateTypeAdapter)
+                .registerTypeAdapter(java.sql.Date.class, sqlDateTypeAdapter)
+                .registerTypeAdapter(OffsetDateTime.class, offsetDateTimeTypeAdapter)
+                .registerTypeAdapter(LocalDate.class, localDateTypeAdapter)
+                .registerTypeAdapter(byte[].class, byteArrayAdapter)
+                .registerTypeAdapter(Instant.class, instantTypeAdapter)
+                .create();
+    }
 
     public <T> T fromJson(String json, Type typeOfT) throws JsonSyntaxException {
-        System.out.println(json);
+        return gson.fromJson(json, typeOfT);
+    }
+
+    /**
+     * Decodes straight from the reader, without first collecting the whole document in a String.
+     */
+    public <T> T fromJson(Reader json, Type typeOfT) throws JsonSyntaxException, JsonIOException {
         return gson.fromJson(json, typeOfT);
     }
 
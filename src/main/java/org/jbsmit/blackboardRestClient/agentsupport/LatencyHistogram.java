@@ -0,0 +1,115 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds, with buckets in the style of HdrHistogram: every power of two is split in
+ * 16 linear sub-buckets, so a recorded value is off by at most 1/16th while the whole range of a long fits in less
+ * than a thousand counters. Recording is lock free.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        var value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return total.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        var n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return The upper bound of the bucket holding the value at this percentile, or 0 when nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        var n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        var rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        var seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Calls consumer with the upper bound and count of every non-empty bucket, in ascending order, e.g. to export the
+     * distribution.
+     */
+    public void forEachBucket(BucketConsumer consumer) {
+        for (int i = 0; i < BUCKETS; i++) {
+            var bucketCount = counts.get(i);
+            if (bucketCount > 0) {
+                consumer.accept(upperBoundOf(i), bucketCount);
+            }
+        }
+    }
+
+    /**
+     * @return An independent copy of the current state, for taking snapshots while recording continues
+     */
+    public LatencyHistogram copy() {
+        var copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            copy.counts.set(i, counts.get(i));
+        }
+        copy.count.set(count.get());
+        copy.total.set(total.get());
+        copy.max.set(max.get());
+        return copy;
+    }
+
+    public interface BucketConsumer {
+        void accept(long upperBoundNanos, long count);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        var shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        var subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        var shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        var subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        var lowerBound = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + ((1L << shift) - 1);
+    }
+}
@@ -0,0 +1,43 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The shape of a nextPage url that pages by an 'offset' query parameter, e.g.
+ * '/learn/api/public/v1/users?offset=200'. Used to predict the urls of the pages that follow.
+ */
+public class OffsetPattern {
+    private static final Pattern OFFSET_PARAMETER = Pattern.compile("([?&]offset=)(\\d+)");
+
+    private final String prefix;
+    private final String suffix;
+    private final long offset;
+
+    private OffsetPattern(String prefix, String suffix, long offset) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.offset = offset;
+    }
+
+    public static Optional<OffsetPattern> of(String pageUrl) {
+        Matcher matcher = OFFSET_PARAMETER.matcher(pageUrl);
+        if (!matcher.find()) {
+            return Optional.empty();
+        }
+        var offset = Long.parseLong(matcher.group(2));
+        return Optional.of(new OffsetPattern(
+                pageUrl.substring(0, matcher.end(1)),
+                pageUrl.substring(matcher.end(2)),
+                offset));
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public String urlFor(long offset) {
+        return prefix + offset + suffix;
+    }
+}
@@ -0,0 +1,39 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event for fetching and decoding one page of a paged list result.
+ */
+@Name("org.jbsmit.blackboardRestClient.Page")
+@Label("Page")
+@Category({"Blackboard REST Client"})
+@Description("A page of a paged list result, fetched and decoded")
+public class PageEvent extends jdk.jfr.Event {
+    @Label("URL Template")
+    String urlTemplate;
+
+    @Label("URL")
+    String url;
+
+    @Label("Page Index")
+    @Description("0 for the first page of the list")
+    int pageIndex;
+
+    @Label("Item Count")
+    int itemCount;
+
+    public void commit(RestCall<?> restCall, int pageIndex, int itemCount) {
+        end();
+        if (shouldCommit()) {
+            this.urlTemplate = restCall.getUrlTemplate();
+            this.url = restCall.getUrl();
+            this.pageIndex = pageIndex;
+            this.itemCount = itemCount;
+            commit();
+        }
+    }
+}
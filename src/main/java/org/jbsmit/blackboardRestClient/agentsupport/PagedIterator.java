@@ -0,0 +1,50 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.common.base.Strings;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Iterates over the results of a paged list call. A page is only fetched once the results of the previous page have
+ * been consumed, and only the current page is kept in memory.
+ */
+public class PagedIterator<T> implements Iterator<T> {
+    private final Function<String, PagedResult<List<T>>> pageFetcher;
+    private String nextPage;
+    private Iterator<T> currentPage = Collections.emptyIterator();
+
+    /**
+     * @param firstPage The url of the first page
+     * @param pageFetcher Fetches the page at the given url
+     */
+    public PagedIterator(String firstPage, Function<String, PagedResult<List<T>>> pageFetcher) {
+        this.nextPage = firstPage;
+        this.pageFetcher = pageFetcher;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentPage.hasNext() && nextPage != null) {
+            var page = pageFetcher.apply(nextPage);
+            currentPage = page.getResults() != null
+                    ? page.getResults().iterator()
+                    : Collections.emptyIterator();
+            nextPage = page.getPaging() != null
+                    ? Strings.emptyToNull(page.getPaging().getNextPage())
+                    : null;
+        }
+        return currentPage.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.next();
+    }
+}
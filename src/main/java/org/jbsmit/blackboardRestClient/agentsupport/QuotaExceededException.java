@@ -0,0 +1,10 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * Thrown when a request would exceed the daily budget of a RequestQuota.
+ */
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,173 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.Response;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client side limit on the requests made with one application secret: a maximum number of requests per second and a
+ * daily budget. Share one RequestQuota between the BlackboardConfigs of all jobs that use the same secret.
+ *
+ * Waiting interactive calls are always served before waiting batch calls, and part of the daily budget can be
+ * reserved for interactive calls, so a batch job cannot exhaust the quota for users.
+ */
+public class RequestQuota {
+    private static final String RATE_LIMIT_REMAINING_HEADER = "X-Rate-Limit-Remaining";
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition changed = lock.newCondition();
+
+    private final Clock clock;
+    // Read without the lock by isUnlimited and getRemainingDailyBudget, from any thread
+    private volatile double requestsPerSecond = Double.POSITIVE_INFINITY;
+    private volatile long dailyBudget = Long.MAX_VALUE;
+    private volatile long interactiveReserve = 0;
+
+    private long nextFreeNanos = System.nanoTime();
+    private int waitingInteractive = 0;
+    private LocalDate day;
+    private long usedToday = 0;
+    private volatile long serverRemaining = -1;
+
+    RequestQuota(Clock clock) {
+        this.clock = clock;
+        this.day = today();
+    }
+
+    /**
+     * Creates a quota that does not limit anything until a rate or budget is set.
+     */
+    public static RequestQuota create() {
+        return new RequestQuota(Clock.systemUTC());
+    }
+
+    public RequestQuota setRequestsPerSecond(double requestsPerSecond) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        return this;
+    }
+
+    /**
+     * Maximum number of requests per UTC day.
+     */
+    public RequestQuota setDailyBudget(long dailyBudget) {
+        this.dailyBudget = dailyBudget;
+        return this;
+    }
+
+    /**
+     * Number of requests of the daily budget that batch calls may not use.
+     */
+    public RequestQuota setInteractiveReserve(long interactiveReserve) {
+        this.interactiveReserve = interactiveReserve;
+        return this;
+    }
+
+    public boolean isUnlimited() {
+        return Double.isInfinite(requestsPerSecond) && dailyBudget == Long.MAX_VALUE;
+    }
+
+    /**
+     * Blocks until a request with the given priority may be sent.
+     *
+     * @throws QuotaExceededException When the daily budget for this priority is used up
+     */
+    public void acquire(CallPriority priority) {
+        if (isUnlimited()) {
+            return;
+        }
+
+        lock.lock();
+        var interactive = priority == CallPriority.INTERACTIVE;
+        if (interactive) {
+            waitingInteractive++;
+        }
+        try {
+            while (true) {
+                rollOverDay();
+                var budget = interactive ? dailyBudget : dailyBudget - interactiveReserve;
+                if (usedToday >= budget) {
+                    throw new QuotaExceededException(String.format(
+                            "Daily budget of %d %s requests is used up", budget, priority.name().toLowerCase()));
+                }
+
+                var now = System.nanoTime();
+                if (!interactive && waitingInteractive > 0) {
+                    changed.await();
+                } else if (now >= nextFreeNanos) {
+                    if (!Double.isInfinite(requestsPerSecond)) {
+                        nextFreeNanos = now + (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+                    }
+                    usedToday++;
+                    return;
+                } else {
+                    changed.awaitNanos(nextFreeNanos - now);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            if (interactive) {
+                waitingInteractive--;
+            }
+            changed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the remaining quota that Blackboard reports in the X-Rate-Limit-Remaining header, if any.
+     */
+    public void onResponse(Response response) {
+        var remaining = response.header(RATE_LIMIT_REMAINING_HEADER);
+        if (remaining != null) {
+            try {
+                serverRemaining = Long.parseLong(remaining.trim());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
+    /**
+     * The number of requests made today through this quota.
+     */
+    public long getUsedToday() {
+        lock.lock();
+        try {
+            rollOverDay();
+            return usedToday;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of requests left today: the smaller of the local daily budget and the remaining quota last reported
+     * by Blackboard. Long.MAX_VALUE when neither is known.
+     */
+    public long getRemainingDailyBudget() {
+        var localRemaining = dailyBudget == Long.MAX_VALUE ? Long.MAX_VALUE : dailyBudget - getUsedToday();
+        var reported = serverRemaining;
+        return reported >= 0 ? Math.min(localRemaining, reported) : localRemaining;
+    }
+
+    private void rollOverDay() {
+        var today = today();
+        if (!today.equals(day)) {
+            day = today;
+            usedToday = 0;
+        }
+    }
+
+    private LocalDate today() {
+        return LocalDate.ofInstant(clock.instant(), ZoneOffset.UTC);
+    }
+}
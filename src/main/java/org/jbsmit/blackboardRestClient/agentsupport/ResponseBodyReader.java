@@ -0,0 +1,21 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+
+/**
+ * Reads the body of a successful response, typically by decoding it straight from the underlying stream.
+ */
+@FunctionalInterface
+public interface ResponseBodyReader<R> {
+    R read(ResponseBody body) throws IOException;
+
+    /**
+     * Like read(body), for readers that also need the status or headers, e.g. of a ranged download.
+     */
+    default R read(Response response, ResponseBody body) throws IOException {
+        return read(body);
+    }
+}
@@ -0,0 +1,199 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+/**
+ * Cache for conditional GETs. Responses that carry an ETag or Last-Modified header are kept together with the object
+ * decoded from them. The next GET of the same url sends If-None-Match / If-Modified-Since, and when the server
+ * answers 304 Not Modified the cached object is returned without downloading or decoding the body again.
+ *
+ * The cache is bounded by the total size of the cached bodies. A successful POST, PUT, PATCH or DELETE evicts the
+ * entries of the written resource, its sub resources and the collection it belongs to.
+ *
+ * Cached objects are handed to every caller of the same url, so treat them as read-only. Don't share a ResponseCache
+ * between configs with different secrets, as the entries aren't separated by credentials.
+ */
+public class ResponseCache {
+    private final boolean enabled;
+    private long maxBytes = 32 * 1024 * 1024;
+    private Cache<Key, Entry> cache;
+
+    private ResponseCache(boolean enabled) {
+        this.enabled = enabled;
+        this.cache = buildCache(maxBytes);
+    }
+
+    /**
+     * Creates a cache holding up to 32 MiB of response bodies.
+     */
+    public static ResponseCache create() {
+        return new ResponseCache(true);
+    }
+
+    /**
+     * Creates a cache that never stores anything.
+     */
+    public static ResponseCache none() {
+        return new ResponseCache(false);
+    }
+
+    /**
+     * Maximum total size of the cached response bodies. Least recently used entries are evicted first. Replaces the
+     * current contents, so set it before the cache is used.
+     */
+    public ResponseCache setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.cache = buildCache(maxBytes);
+        return this;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Number of entries currently cached
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return Hits and misses of cache lookups. A hit means validators were sent, not that the server answered 304.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return The key under which the result of this call is cached, or null if it's not cacheable. The reader is part
+     * of the key, so a url decoded by the agent and the same url read as a String are cached separately.
+     */
+    Key keyFor(RestCall<?> restCall, HttpUrl url, ResponseBodyReader<?> bodyReader) {
+        if (!enabled || restCall.getMethodType() != MethodType.GET) {
+            return null;
+        }
+        var returnType = restCall.getReturnType() != null ? restCall.getReturnType().getType() : null;
+        return new Key(url, returnType, bodyReader.getClass());
+    }
+
+    Entry get(Key key) {
+        return key != null ? cache.getIfPresent(key) : null;
+    }
+
+    /**
+     * Caches value when the response carries validators.
+     */
+    void put(Key key, Response response, Object value, long bodyBytes) {
+        if (key == null || response.code() != 200 || value == null) {
+            return;
+        }
+        var etag = response.header("ETag");
+        var lastModified = response.header("Last-Modified");
+        if (etag == null && lastModified == null) {
+            return;
+        }
+        var weight = (int) Math.min(Integer.MAX_VALUE, bodyBytes + key.url.length());
+        cache.put(key, new Entry(value, etag, lastModified, weight));
+    }
+
+    /**
+     * Evicts what a successful write to url may have changed: the resource itself, everything below it, and the
+     * collection it is part of.
+     */
+    void invalidate(HttpUrl url) {
+        if (!enabled) {
+            return;
+        }
+        var path = url.encodedPath();
+        var parent = path.substring(0, Math.max(0, path.lastIndexOf('/')));
+        cache.asMap().keySet().removeIf(key -> {
+            var keyPath = key.path;
+            return keyPath.equals(path) || keyPath.startsWith(path + "/") || keyPath.equals(parent);
+        });
+    }
+
+    private static Cache<Key, Entry> buildCache(long maxBytes) {
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, Entry entry) -> entry.weight)
+                .recordStats()
+                .build();
+    }
+
+    static class Key {
+        private final String url;
+        private final String path;
+        private final Type returnType;
+        private final Class<?> readerClass;
+
+        Key(HttpUrl url, Type returnType, Class<?> readerClass) {
+            this.url = url.toString();
+            this.path = url.encodedPath();
+            this.returnType = returnType;
+            this.readerClass = readerClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            var key = (Key) o;
+            return url.equals(key.url) && Objects.equals(returnType, key.returnType) && readerClass == key.readerClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, returnType, readerClass);
+        }
+    }
+
+    static class Entry {
+        private final Object value;
+        private final String etag;
+        private final String lastModified;
+        private final int weight;
+
+        Entry(Object value, String etag, String lastModified, int weight) {
+            this.value = value;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.weight = weight;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        Request addValidators(Request request) {
+            var builder = request.newBuilder();
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            return builder.build();
+        }
+    }
+}
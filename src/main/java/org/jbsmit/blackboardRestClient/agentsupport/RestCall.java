@@ -2,18 +2,23 @@ package org.jbsmit.blackboardRestClient.agentsupport;
 
 import com.google.gson.reflect.TypeToken;
 import okhttp3.MediaType;
+import okhttp3.RequestBody;
 
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class RestCall<T> {
     private TypeToken<T> returnType;
     private MethodType methodType = MethodType.GET;
     private String url;
+    private String urlTemplate;
     private MediaType contentType;
     private String body;
+    private RequestBody requestBody;
+    private CallPriority priority;
     private final Map<String, String> parameters = new HashMap<>();
     private final Map<String, String> pathParameters = new HashMap<>();
     private final Map<String, String> headers = new HashMap<>();
@@ -42,6 +47,18 @@ public class RestCall<T> {
         this.url = url;
     }
 
+    /**
+     * The url as declared by the API, e.g. /learn/api/public/v1/users/{userId}. Unlike getUrl it doesn't change while
+     * the pages of a list are fetched, so it identifies the endpoint.
+     */
+    public String getUrlTemplate() {
+        return urlTemplate != null ? urlTemplate : url;
+    }
+
+    public void setUrlTemplate(String urlTemplate) {
+        this.urlTemplate = urlTemplate;
+    }
+
     public MediaType getContentType() {
         return contentType;
     }
@@ -58,6 +75,81 @@ public class RestCall<T> {
         this.body = body;
     }
 
+    /**
+     * A body that is written straight to the connection, e.g. the multipart body of an Upload. Takes the place of
+     * getBody and getContentType when set.
+     */
+    public RequestBody getRequestBody() {
+        return requestBody;
+    }
+
+    public void setRequestBody(RequestBody requestBody) {
+        this.requestBody = requestBody;
+    }
+
+    /**
+     * The priority of this call when waiting for the RequestQuota, or null for the agent's default priority.
+     */
+    public CallPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(CallPriority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Asks Learn to return only the given properties of the result, or of every item of a list result.
+     *
+     * @throws IllegalArgumentException if the projection is of another model than the result of this call
+     */
+    public void setFields(Fields<?> fields) {
+        var itemModel = returnType != null ? Fields.itemModelOf(returnType) : null;
+        if (itemModel != fields.getModel()) {
+            throw new IllegalArgumentException(String.format("Fields of %s don't apply to %s",
+                    fields.getModel().getSimpleName(),
+                    returnType != null ? returnType : "an untyped call"));
+        }
+        addParameter("fields", fields.toString());
+    }
+
+    /**
+     * Asks Learn for pages of pageSize items, instead of its default of usually 100. Learn may return fewer per page
+     * than asked; the agent follows the pages either way.
+     *
+     * @throws IllegalArgumentException if this call doesn't return a list
+     */
+    public void setPageSize(int pageSize) {
+        checkListResult("pageSize");
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        addParameter("limit", pageSize);
+    }
+
+    /**
+     * Starts the list at the offset-th item instead of the first, e.g. to resume an interrupted listing. To split a
+     * long listing over workers, give every worker its own offset and take only its share of
+     * {@code agent.stream(restCall)}; pages are fetched lazily, so set the page size to the share or a divisor of it.
+     *
+     * @throws IllegalArgumentException if this call doesn't return a list
+     */
+    public void setOffset(long offset) {
+        checkListResult("offset");
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+        addParameter("offset", offset);
+    }
+
+    private void checkListResult(String option) {
+        if (returnType == null || !List.class.isAssignableFrom(returnType.getRawType())) {
+            throw new IllegalArgumentException(String.format("%s only applies to list calls, not to %s",
+                    option,
+                    returnType != null ? returnType : "an untyped call"));
+        }
+    }
+
     public Map<String, String> getParameters() {
         return parameters;
     }
@@ -97,4 +189,23 @@ public class RestCall<T> {
     public void addHeader(String key, String value) {
         this.headers.put(key, value);
     }
+
+    /**
+     * Creates a copy of this RestCall that can be modified and run independently of the original.
+     */
+    public RestCall<T> copy() {
+        var copy = new RestCall<T>();
+        copy.returnType = returnType;
+        copy.methodType = methodType;
+        copy.url = url;
+        copy.urlTemplate = urlTemplate;
+        copy.contentType = contentType;
+        copy.body = body;
+        copy.requestBody = requestBody;
+        copy.priority = priority;
+        copy.parameters.putAll(parameters);
+        copy.pathParameters.putAll(pathParameters);
+        copy.headers.putAll(headers);
+        return copy;
+    }
 }
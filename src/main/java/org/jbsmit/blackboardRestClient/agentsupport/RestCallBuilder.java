@@ -3,6 +3,7 @@ package org.jbsmit.blackboardRestClient.agentsupport;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import okhttp3.MediaType;
+import okhttp3.RequestBody;
 
 public class RestCallBuilder<T> {
     private final RestCall<T> restCall = new RestCall<>();
@@ -15,6 +16,7 @@ public class RestCallBuilder<T> {
 
     public RestCallBuilder<T> url(String url) {
         restCall.setUrl(url);
+        restCall.setUrlTemplate(url);
         return this;
     }
 
@@ -65,11 +67,21 @@ public class RestCallBuilder<T> {
         return this;
     }
 
+    public RestCallBuilder<T> body(RequestBody requestBody) {
+        restCall.setRequestBody(requestBody);
+        return this;
+    }
+
     public RestCallBuilder<T> header(String key, String value) {
         restCall.addHeader(key, value);
         return this;
     }
 
+    public RestCallBuilder<T> priority(CallPriority priority) {
+        restCall.setPriority(priority);
+        return this;
+    }
+
     public RestCallBuilder<T> options(RestCallOption... options) {
         for(var option : options) {
             option.getRestCallDecorator().decorate(restCall);
@@ -0,0 +1,56 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event for a single HTTP exchange, from sending the request until the body has been read. A call
+ * that is retried emits one event per attempt.
+ */
+@Name("org.jbsmit.blackboardRestClient.RestCall")
+@Label("REST Call")
+@Category({"Blackboard REST Client"})
+@Description("An HTTP exchange with Blackboard Learn")
+public class RestCallEvent extends jdk.jfr.Event {
+    @Label("Method")
+    String method;
+
+    @Label("URL Template")
+    String urlTemplate;
+
+    @Label("URL")
+    String url;
+
+    @Label("Status Code")
+    @Description("HTTP status code, or 0 when the exchange failed without a response")
+    int statusCode;
+
+    @Label("Attempt")
+    @Description("0 for the first attempt, counting up for retries")
+    int attempt;
+
+    @Label("Bytes Out")
+    @DataAmount(DataAmount.BYTES)
+    long bytesOut;
+
+    @Label("Bytes In")
+    @DataAmount(DataAmount.BYTES)
+    long bytesIn;
+
+    void commit(RestCall<?> restCall, int attempt, int statusCode, long bytesOut, long bytesIn) {
+        end();
+        if (shouldCommit()) {
+            this.method = restCall.getMethodType().name();
+            this.urlTemplate = restCall.getUrlTemplate();
+            this.url = restCall.getUrl();
+            this.attempt = attempt;
+            this.statusCode = statusCode;
+            this.bytesOut = bytesOut;
+            this.bytesIn = bytesIn;
+            commit();
+        }
+    }
+}
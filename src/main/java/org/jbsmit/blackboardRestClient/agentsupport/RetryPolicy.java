@@ -0,0 +1,107 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.Response;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether and when a call that was rate limited (429) or hit an unavailable server (503) is retried. Only
+ * idempotent methods are retried. The server's Retry-After header is honored; without it the delay grows
+ * exponentially with full jitter.
+ */
+public class RetryPolicy {
+    private static final Set<MethodType> IDEMPOTENT_METHODS = EnumSet.of(MethodType.GET, MethodType.PUT, MethodType.DELETE);
+    private static final Set<Integer> RETRYABLE_CODES = Set.of(429, 503);
+
+    private int maxRetries = 5;
+    private Duration initialBackoff = Duration.ofMillis(500);
+    private Duration maxBackoff = Duration.ofMinutes(1);
+
+    private RetryPolicy() {
+    }
+
+    public static RetryPolicy create() {
+        return new RetryPolicy();
+    }
+
+    public static RetryPolicy none() {
+        return new RetryPolicy().setMaxRetries(0);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Number of times a call is retried before its failure is reported. Defaults to 5.
+     */
+    public RetryPolicy setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Upper bound of the delay before the first retry. Doubles with every retry. Defaults to 500ms.
+     */
+    public RetryPolicy setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+        return this;
+    }
+
+    /**
+     * Upper bound of the delay between retries, also when the server asks for a longer delay. Defaults to 1 minute.
+     */
+    public RetryPolicy setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    public boolean isRetryable(RestCall<?> restCall, Response response, int attempt) {
+        return attempt < maxRetries
+                && RETRYABLE_CODES.contains(response.code())
+                && IDEMPOTENT_METHODS.contains(restCall.getMethodType());
+    }
+
+    /**
+     * The delay before the given retry attempt (0 based), using the Retry-After value when the server sent one.
+     */
+    public Duration getBackoff(int attempt, Duration retryAfter) {
+        if (retryAfter != null) {
+            var jitter = Duration.ofMillis(ThreadLocalRandom.current().nextLong(initialBackoff.toMillis() + 1));
+            return min(retryAfter.plus(jitter), maxBackoff);
+        }
+        var ceiling = min(initialBackoff.multipliedBy(1L << Math.min(attempt, 20)), maxBackoff);
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling.toMillis() + 1));
+    }
+
+    /**
+     * Parses the Retry-After header, which holds either a number of seconds or an HTTP date.
+     */
+    public static Duration getRetryAfter(Response response) {
+        var retryAfter = response.header("Retry-After");
+        if (retryAfter == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                var date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                var delay = Duration.between(ZonedDateTime.now(), date);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException e2) {
+                return null;
+            }
+        }
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
@@ -1,21 +1,155 @@
 package org.jbsmit.blackboardRestClient.agentsupport;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+/**
+ * Keeps the access token of a BlackboardAgent.
+ *
+ * Reading a valid token is lock free. When the token has to be renewed, exactly one renewal is in flight and all
+ * callers wait for that renewal. Once a token enters its refresh window (the last refreshSkew of its lifetime), a
+ * renewal is started in the background while callers keep using the current token, so requests normally never wait
+ * for a renewal.
+ */
 public class TokenManager {
-    private String token = "";
-    private Instant expirationInstant = Instant.ofEpochMilli(0);
+    private static final class TokenState {
+        private final String token;
+        private final Instant refreshInstant;
+        private final Instant expirationInstant;
 
-    public boolean isTokenExpired() {
-        return Instant.now().isAfter(expirationInstant);
+        private TokenState(String token, Instant refreshInstant, Instant expirationInstant) {
+            this.token = token;
+            this.refreshInstant = refreshInstant;
+            this.expirationInstant = expirationInstant;
+        }
+
+        private boolean isExpired(Instant now) {
+            return !now.isBefore(expirationInstant);
+        }
+
+        private boolean needsRefresh(Instant now) {
+            return !now.isBefore(refreshInstant);
+        }
+    }
+
+    private final Supplier<CompletableFuture<Token>> tokenRenewer;
+    private final Duration refreshSkew;
+    private final AtomicReference<CompletableFuture<TokenState>> renewal = new AtomicReference<>();
+    private volatile TokenState state = new TokenState("", Instant.EPOCH, Instant.EPOCH);
+
+    /**
+     * @param tokenRenewer Requests a new token from Blackboard
+     * @param refreshSkew How long before expiration a token is renewed in the background
+     */
+    public TokenManager(Supplier<CompletableFuture<Token>> tokenRenewer, Duration refreshSkew) {
+        this.tokenRenewer = tokenRenewer;
+        this.refreshSkew = refreshSkew;
     }
 
+    /**
+     * Returns a valid token, only blocking when there is no valid token yet.
+     */
     public String getToken() {
-        return token;
+        var current = state;
+        var now = Instant.now();
+        if (!current.needsRefresh(now)) {
+            return current.token;
+        }
+
+        var pendingRenewal = renew();
+        if (!current.isExpired(now)) {
+            return current.token;
+        }
+
+        try {
+            return pendingRenewal.join().token;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a valid token without blocking the calling thread.
+     */
+    public CompletableFuture<String> getTokenAsync() {
+        var current = state;
+        var now = Instant.now();
+        if (!current.needsRefresh(now)) {
+            return CompletableFuture.completedFuture(current.token);
+        }
+
+        var pendingRenewal = renew();
+        if (!current.isExpired(now)) {
+            return CompletableFuture.completedFuture(current.token);
+        }
+
+        return pendingRenewal.thenApply(renewed -> renewed.token);
+    }
+
+    public boolean isTokenExpired() {
+        return state.isExpired(Instant.now());
+    }
+
+    /**
+     * Returns the renewal in flight, or starts one if there is none.
+     */
+    private CompletableFuture<TokenState> renew() {
+        while (true) {
+            var pendingRenewal = renewal.get();
+            if (pendingRenewal != null) {
+                return pendingRenewal;
+            }
+
+            var newRenewal = new CompletableFuture<TokenState>();
+            if (renewal.compareAndSet(null, newRenewal)) {
+                startRenewal(newRenewal);
+                return newRenewal;
+            }
+        }
+    }
+
+    private void startRenewal(CompletableFuture<TokenState> newRenewal) {
+        // Another thread may have finished a renewal between reading the state and claiming this one
+        var current = state;
+        if (!current.needsRefresh(Instant.now())) {
+            renewal.set(null);
+            newRenewal.complete(current);
+            return;
+        }
+
+        CompletableFuture<Token> tokenRequest;
+        try {
+            tokenRequest = tokenRenewer.get();
+        } catch (RuntimeException e) {
+            renewal.set(null);
+            newRenewal.completeExceptionally(e);
+            return;
+        }
+
+        tokenRequest.whenComplete((token, e) -> {
+            if (e == null) {
+                state = createState(token);
+                renewal.set(null);
+                newRenewal.complete(state);
+            } else {
+                renewal.set(null);
+                newRenewal.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            }
+        });
     }
 
-    public void updateToken(String token, Instant expirationInstant) {
-        this.token = token;
-        this.expirationInstant = expirationInstant;
+    private TokenState createState(Token token) {
+        var now = Instant.now();
+        var lifetime = Duration.ofSeconds(token.getExpires_in());
+        var skew = refreshSkew.compareTo(lifetime.dividedBy(2)) < 0 ? refreshSkew : lifetime.dividedBy(2);
+        var expirationInstant = now.plus(lifetime);
+        return new TokenState(token.getAccess_token(), expirationInstant.minus(skew), expirationInstant);
     }
 }
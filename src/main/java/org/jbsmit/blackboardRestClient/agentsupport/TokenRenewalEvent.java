@@ -0,0 +1,33 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event for fetching a new access token.
+ */
+@Name("org.jbsmit.blackboardRestClient.TokenRenewal")
+@Label("Token Renewal")
+@Category({"Blackboard REST Client"})
+@Description("A request for a new OAuth2 access token")
+public class TokenRenewalEvent extends jdk.jfr.Event {
+    @Label("Succeeded")
+    boolean succeeded;
+
+    @Label("Expires In")
+    @Description("Lifetime of the new token")
+    @Timespan(Timespan.SECONDS)
+    long expiresIn;
+
+    public void commit(Token token) {
+        end();
+        if (shouldCommit()) {
+            this.succeeded = token != null;
+            this.expiresIn = token != null ? token.getExpires_in() : 0;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A file to send to UploadsApi.upload. The file is streamed from disk or from an InputStream into the multipart/form-data
+ * request while it's written to the connection, so it is never held in memory.
+ *
+ * <pre>
+ * var uploadedFile = agent.run(UploadsApi.upload(Upload.of(path)));
+ * </pre>
+ */
+public class Upload {
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final InputStream inputStream;
+    private final String fileName;
+    private final long length;
+    private MediaType contentType = OCTET_STREAM;
+    private UploadProgressListener progressListener = (bytesSent, totalBytes) -> { };
+
+    private Upload(Path path, InputStream inputStream, String fileName, long length) {
+        this.path = path;
+        this.inputStream = inputStream;
+        this.fileName = fileName;
+        this.length = length;
+    }
+
+    /**
+     * Uploads the file at path under its own name. The file is read again if the request is sent again.
+     */
+    public static Upload of(Path path) {
+        try {
+            return new Upload(path, null, path.getFileName().toString(), Files.size(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Uploads what is read from inputStream, which is left open. The stream can only be sent once, so the upload is
+     * not retried.
+     *
+     * @param length The number of bytes inputStream will provide, or -1 if unknown
+     */
+    public static Upload of(InputStream inputStream, String fileName, long length) {
+        return new Upload(null, inputStream, fileName, length);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return The size of the file, or -1 if unknown
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public MediaType getContentType() {
+        return contentType;
+    }
+
+    /**
+     * The Content-Type of the file part. Defaults to application/octet-stream.
+     */
+    public Upload setContentType(String contentType) {
+        this.contentType = MediaType.get(contentType);
+        return this;
+    }
+
+    public UploadProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public Upload setProgressListener(UploadProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * @return A multipart/form-data body with the file as its 'file' part
+     */
+    public RequestBody toRequestBody() {
+        return new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("file", fileName, new FileRequestBody())
+                .build();
+    }
+
+    private class FileRequestBody extends RequestBody {
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return inputStream != null;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            var source = path != null ? Okio.source(path) : Okio.source(inputStream);
+            try {
+                var sent = 0L;
+                for (long read; (read = source.read(sink.getBuffer(), CHUNK_SIZE)) != -1; ) {
+                    sink.emitCompleteSegments();
+                    sent += read;
+                    progressListener.onProgress(sent, length);
+                }
+            } finally {
+                if (path != null) {
+                    source.close();
+                }
+            }
+        }
+    }
+}
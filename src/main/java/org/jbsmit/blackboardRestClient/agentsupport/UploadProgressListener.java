@@ -0,0 +1,15 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * Follows the progress of an Upload.
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+    /**
+     * Called every time a chunk of the file has been written to the connection.
+     *
+     * @param bytesSent Bytes of the file sent so far
+     * @param totalBytes Size of the file, or -1 if it isn't known up front
+     */
+    void onProgress(long bytesSent, long totalBytes);
+}
@@ -0,0 +1,9 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+/**
+ * Receives the formatted wire log messages of a BlackboardAgent.
+ */
+@FunctionalInterface
+public interface WireLogger {
+    void log(String message);
+}
@@ -0,0 +1,168 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.Headers;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Settings for logging the HTTP traffic of a BlackboardAgent. Logging is off by default. Messages are only formatted
+ * when the level asks for them and the exchange is sampled, so disabled logging costs next to nothing.
+ */
+public class WireLogging {
+    public enum LogLevel {
+        /** Nothing is logged */
+        NONE,
+        /** Method, url, status code and duration */
+        BASIC,
+        /** BASIC plus request and response headers */
+        HEADERS,
+        /** HEADERS plus request and response bodies */
+        BODY
+    }
+
+    private static final Logger LOGGER = Logger.getLogger("org.jbsmit.blackboardRestClient.wire");
+    private static final String REDACTED = "<redacted>";
+
+    private LogLevel level = LogLevel.NONE;
+    private WireLogger logger = message -> LOGGER.log(Level.INFO, message);
+    private int maxBodyLength = 4096;
+    private double sampleRate = 1.0;
+    private final Set<String> redactedHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    private WireLogging() {
+        redactedHeaders.add("Authorization");
+    }
+
+    public static WireLogging create() {
+        return new WireLogging();
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    public WireLogging setLevel(LogLevel level) {
+        this.level = level;
+        return this;
+    }
+
+    public WireLogging setLogger(WireLogger logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * Request bodies longer than this number of characters and response bodies longer than this number of bytes are
+     * truncated. Defaults to 4096.
+     */
+    public WireLogging setMaxBodyLength(int maxBodyLength) {
+        this.maxBodyLength = maxBodyLength;
+        return this;
+    }
+
+    /**
+     * Fraction of the successful exchanges that is logged, between 0 and 1. Failed exchanges are always logged.
+     */
+    public WireLogging setSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+        }
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    /**
+     * Headers whose values are replaced in the log. Authorization is always redacted.
+     */
+    public WireLogging redactHeader(String name) {
+        redactedHeaders.add(name);
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return level != LogLevel.NONE;
+    }
+
+    public boolean isBodyEnabled() {
+        return level == LogLevel.BODY;
+    }
+
+    /**
+     * Logs an exchange once the response headers have arrived. With the BODY level, the first maxBodyLength bytes of
+     * the response body are peeked at without consuming them.
+     */
+    public void log(RestCall<?> restCall, Response response) throws IOException {
+        if (!isEnabled() || (response.isSuccessful() && !isSampled())) {
+            return;
+        }
+
+        var request = response.request();
+        var message = new StringBuilder()
+                .append("--> ").append(request.method()).append(' ').append(request.url());
+        if (level.compareTo(LogLevel.HEADERS) >= 0) {
+            appendHeaders(message, request.headers());
+        }
+        if (isBodyEnabled() && restCall.getBody() != null) {
+            message.append('\n').append(truncate(isTokenCall(restCall) ? REDACTED : restCall.getBody()));
+        }
+
+        message.append("\n<-- ").append(response.code())
+                .append(' ').append(request.url())
+                .append(" (").append(response.receivedResponseAtMillis() - response.sentRequestAtMillis()).append("ms)");
+        if (level.compareTo(LogLevel.HEADERS) >= 0) {
+            appendHeaders(message, response.headers());
+        }
+        if (isBodyEnabled()) {
+            // Peek one byte more than is logged, to tell a body that just fits from a longer one without relying on
+            // the Content-Length, which chunked responses don't have
+            var responseBody = response.peekBody(maxBodyLength + 1L);
+            var bytes = responseBody.bytes();
+            if (bytes.length > 0) {
+                var charset = responseBody.contentType() != null
+                        ? responseBody.contentType().charset(StandardCharsets.UTF_8)
+                        : StandardCharsets.UTF_8;
+                message.append('\n').append(isTokenCall(restCall)
+                        ? REDACTED
+                        : new String(bytes, 0, Math.min(bytes.length, maxBodyLength), charset));
+                if (bytes.length > maxBodyLength) {
+                    message.append("... (truncated)");
+                }
+            }
+        }
+
+        logger.log(message.toString());
+    }
+
+    private boolean isSampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void appendHeaders(StringBuilder message, Headers headers) {
+        for (var i = 0; i < headers.size(); i++) {
+            var name = headers.name(i);
+            message.append('\n').append(name).append(": ")
+                    .append(redactedHeaders.contains(name) ? REDACTED : headers.value(i));
+        }
+    }
+
+    private String truncate(String body) {
+        if (body.length() <= maxBodyLength) {
+            return body;
+        }
+        return body.substring(0, maxBodyLength) + "... (" + (body.length() - maxBodyLength) + " more characters)";
+    }
+
+    /**
+     * The body of the token request holds the grant and its response holds the access token.
+     */
+    private boolean isTokenCall(RestCall<?> restCall) {
+        return restCall.getUrl().endsWith("/oauth2/token");
+    }
+}
@@ -1737,6 +1737,30 @@ public class CourseGradesApi {
             this.gradeNotationId = gradeNotationId;
             return this;
         }
+
+        public String getText() {
+            return text;
+        }
+
+        public BigDecimal getScore() {
+            return score;
+        }
+
+        public String getNotes() {
+            return notes;
+        }
+
+        public String getFeedback() {
+            return feedback;
+        }
+
+        public boolean getExempt() {
+            return exempt;
+        }
+
+        public String getGradeNotationId() {
+            return gradeNotationId;
+        }
     }
 
     /*
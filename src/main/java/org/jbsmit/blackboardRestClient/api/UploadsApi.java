@@ -4,6 +4,7 @@ import com.google.gson.reflect.TypeToken;
 import org.jbsmit.blackboardRestClient.model.UploadedFileInfo;
 import org.jbsmit.blackboardRestClient.agentsupport.RestCall;
 import org.jbsmit.blackboardRestClient.agentsupport.RestCallBuilder;
+import org.jbsmit.blackboardRestClient.agentsupport.Upload;
 
 public class UploadsApi {
     /*
@@ -26,4 +27,22 @@ public class UploadsApi {
             .url("/learn/api/public/v1/uploads")
             .build();
     }
+
+    /*
+     * Upload
+     *
+     * Upload a file to temporary storage, streaming it from disk or from an InputStream.
+     *
+     * Returns an ID of the file reference, to pass to for example createFileAttachment or attachFile.
+     *
+     * **Since**: 3100.12.0
+     */
+    public static RestCall<UploadedFileInfo> upload(Upload file) {
+        return RestCallBuilder
+            .start(new TypeToken<UploadedFileInfo>() {})
+            .post()
+            .url("/learn/api/public/v1/uploads")
+            .body(file.toRequestBody())
+            .build();
+    }
 }
@@ -0,0 +1,220 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.agentsupport.Download;
+import org.jbsmit.blackboardRestClient.agentsupport.VirtualThreads;
+import org.jbsmit.blackboardRestClient.api.CourseGradeAttemptsApi;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.model.AttemptFile;
+import org.jbsmit.blackboardRestClient.model.AttemptV2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads the files submitted to a grade column, e.g. to grade them offline or to archive a course.
+ *
+ * Every file is written to {@code <directory>/<userId>/<attemptId>/<file name>}. The files of an attempt are listed
+ * while other files are already downloading, with at most {@link #setConcurrency concurrency} requests in flight.
+ * Files are streamed to disk, so memory use doesn't depend on their size.
+ *
+ * Files that are already on disk are kept: complete ones are skipped and partial ones are resumed. That makes it cheap
+ * to run again after an interruption, or to fetch the attempts that came in since the last run.
+ */
+public class AttemptFileDownloader {
+    private static final Pattern UNSAFE_CHARACTERS = Pattern.compile("[\\\\/:*?\"<>|\\p{Cntrl}]");
+
+    private final BlackboardAgent agent;
+    private int concurrency = 8;
+    private AttemptFileListener listener = result -> { };
+
+    private AttemptFileDownloader(BlackboardAgent agent) {
+        this.agent = agent;
+    }
+
+    public static AttemptFileDownloader create(BlackboardAgent agent) {
+        return new AttemptFileDownloader(agent);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Maximum number of listing and download requests in flight at the same time. Defaults to 8.
+     */
+    public AttemptFileDownloader setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Is told about every file as soon as it is done, e.g. to show progress. When it throws, the file is reported
+     * as failed.
+     */
+    public AttemptFileDownloader setListener(AttemptFileListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Download the files of all attempts of a column
+     *
+     * A file that fails doesn't stop the others; it is reported in the result.
+     *
+     * @param courseId The id of the course
+     * @param columnId The id of the grade column
+     * @param directory The directory to write the files to. It is created when it doesn't exist.
+     * @return What was downloaded, skipped and failed, and the throughput
+     */
+    public BulkDownloadReport downloadColumn(String courseId, String columnId, Path directory) {
+        var start = System.nanoTime();
+        var attempts = agent.run(CourseGradesApi.getColumnAttempts(courseId, columnId));
+        var permits = new Semaphore(concurrency);
+        var results = new ConcurrentLinkedQueue<AttemptFileResult>();
+
+        var executor = VirtualThreads.newThreadPerTaskExecutor("blackboard-bulk-download-%d");
+        try {
+            var attemptFutures = new ArrayList<CompletableFuture<Void>>(attempts.size());
+            for (var attempt : attempts) {
+                attemptFutures.add(CompletableFuture
+                        .supplyAsync(() -> withPermit(permits, () -> agent.run(
+                                CourseGradeAttemptsApi.getAttemptFileMetaDataList(courseId, attempt.getId()))),
+                                executor)
+                        .handle((files, e) -> {
+                            if (e != null) {
+                                report(results, new AttemptFileResult(attempt.getId(), attempt.getUserId(), null,
+                                        null, AttemptFileResult.Status.FAILED, 0, 0, unwrap(e)));
+                                return List.<AttemptFile>of();
+                            }
+                            return files;
+                        })
+                        .thenCompose(files -> {
+                            List<Path> targets;
+                            try {
+                                targets = targets(directory, attempt, files);
+                            } catch (RuntimeException e) {
+                                report(results, new AttemptFileResult(attempt.getId(), attempt.getUserId(), null,
+                                        null, AttemptFileResult.Status.FAILED, 0, 0, e));
+                                return CompletableFuture.completedFuture(null);
+                            }
+                            var fileFutures = new CompletableFuture<?>[files.size()];
+                            for (int i = 0; i < files.size(); i++) {
+                                var file = files.get(i);
+                                var target = targets.get(i);
+                                fileFutures[i] = CompletableFuture.runAsync(() -> report(results, withPermit(permits,
+                                        () -> download(courseId, attempt, file, target))), executor);
+                            }
+                            return CompletableFuture.allOf(fileFutures);
+                        }));
+            }
+            CompletableFuture.allOf(attemptFutures.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        var sorted = new ArrayList<>(results);
+        sorted.sort(Comparator
+                .comparing(AttemptFileResult::getUserId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(AttemptFileResult::getAttemptId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(AttemptFileResult::getAttemptFileId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return new BulkDownloadReport(attempts.size(), sorted, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private AttemptFileResult download(String courseId, AttemptV2 attempt, AttemptFile file, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            var result = agent.download(
+                    CourseGradeAttemptsApi.download(courseId, attempt.getId(), file.getId()),
+                    Download.to(target).setResumeExisting(true));
+            AttemptFileResult.Status status;
+            if (result.getBytesDownloaded() == result.getBytes()) {
+                status = AttemptFileResult.Status.DOWNLOADED;
+            } else if (result.getBytesDownloaded() == 0) {
+                status = AttemptFileResult.Status.SKIPPED;
+            } else {
+                status = AttemptFileResult.Status.RESUMED;
+            }
+            return new AttemptFileResult(attempt.getId(), attempt.getUserId(), file.getId(), target, status,
+                    result.getBytes(), result.getBytesDownloaded(), null);
+        } catch (IOException e) {
+            return failure(attempt, file, target, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            return failure(attempt, file, target, e);
+        }
+    }
+
+    /**
+     * Add a result and tell the listener. When the listener throws, the file is recorded as failed with its exception.
+     */
+    private void report(ConcurrentLinkedQueue<AttemptFileResult> results, AttemptFileResult result) {
+        try {
+            listener.onFile(result);
+        } catch (RuntimeException e) {
+            result = new AttemptFileResult(result.getAttemptId(), result.getUserId(), result.getAttemptFileId(),
+                    result.getPath(), AttemptFileResult.Status.FAILED, result.getBytes(), result.getBytesDownloaded(),
+                    e);
+        }
+        results.add(result);
+    }
+
+    /**
+     * The paths of the files of an attempt. Names that are empty or used twice get the file id prepended.
+     */
+    private static List<Path> targets(Path directory, AttemptV2 attempt, List<AttemptFile> files) {
+        var owner = attempt.getUserId() != null ? attempt.getUserId() : attempt.getGroupAttemptId();
+        var attemptDirectory = directory.resolve(sanitize(owner != null ? owner : "unknown"))
+                .resolve(sanitize(attempt.getId()));
+        var names = new HashSet<String>();
+        var targets = new ArrayList<Path>(files.size());
+        for (var file : files) {
+            var name = file.getName() != null ? sanitize(file.getName()) : "";
+            if (name.isEmpty() || !names.add(name)) {
+                name = sanitize(file.getId()) + (name.isEmpty() ? "" : "_" + name);
+                names.add(name);
+            }
+            targets.add(attemptDirectory.resolve(name));
+        }
+        return targets;
+    }
+
+    private static String sanitize(String name) {
+        var safe = UNSAFE_CHARACTERS.matcher(name).replaceAll("_");
+        return safe.startsWith(".") ? "_" + safe.substring(1) : safe;
+    }
+
+    private static <T> T withPermit(Semaphore permits, Supplier<T> task) {
+        permits.acquireUninterruptibly();
+        try {
+            return task.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static AttemptFileResult failure(AttemptV2 attempt, AttemptFile file, Path target, RuntimeException e) {
+        return new AttemptFileResult(attempt.getId(), attempt.getUserId(), file.getId(), target,
+                AttemptFileResult.Status.FAILED, 0, 0, e);
+    }
+
+    private static RuntimeException unwrap(Throwable e) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+    }
+}
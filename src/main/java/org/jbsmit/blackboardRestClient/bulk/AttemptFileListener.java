@@ -0,0 +1,9 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+/**
+ * Called by an AttemptFileDownloader when a file is done, from the thread that downloaded it.
+ */
+@FunctionalInterface
+public interface AttemptFileListener {
+    void onFile(AttemptFileResult result);
+}
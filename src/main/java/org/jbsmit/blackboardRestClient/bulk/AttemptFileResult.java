@@ -0,0 +1,102 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import java.nio.file.Path;
+
+/**
+ * The outcome of one attempt file of an AttemptFileDownloader run. A failure to list the files of an attempt is
+ * reported as a single FAILED result without attemptFileId.
+ */
+public class AttemptFileResult {
+    public enum Status {
+        /**
+         * The whole file was downloaded
+         */
+        DOWNLOADED,
+        /**
+         * Part of the file was already on disk and only the rest was downloaded
+         */
+        RESUMED,
+        /**
+         * The file was already complete on disk
+         */
+        SKIPPED,
+        FAILED
+    }
+
+    private final String attemptId;
+    private final String userId;
+    private final String attemptFileId;
+    private final Path path;
+    private final Status status;
+    private final long bytes;
+    private final long bytesDownloaded;
+    private final RuntimeException exception;
+
+    AttemptFileResult(
+            String attemptId,
+            String userId,
+            String attemptFileId,
+            Path path,
+            Status status,
+            long bytes,
+            long bytesDownloaded,
+            RuntimeException exception) {
+        this.attemptId = attemptId;
+        this.userId = userId;
+        this.attemptFileId = attemptFileId;
+        this.path = path;
+        this.status = status;
+        this.bytes = bytes;
+        this.bytesDownloaded = bytesDownloaded;
+        this.exception = exception;
+    }
+
+    public String getAttemptId() {
+        return attemptId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getAttemptFileId() {
+        return attemptFileId;
+    }
+
+    /**
+     * @return Where the file was written, or null when its attempt could not be listed
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The size of the file on disk
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return The bytes received for this file in this run
+     */
+    public long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    /**
+     * @return Why the file failed, or null
+     */
+    public RuntimeException getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return status + " " + (path != null ? path : attemptId) + (exception != null ? ": " + exception : "");
+    }
+}
@@ -0,0 +1,90 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * What an AttemptFileDownloader run did, and how fast.
+ */
+public class BulkDownloadReport {
+    private final int attemptCount;
+    private final List<AttemptFileResult> results;
+    private final Duration elapsed;
+
+    BulkDownloadReport(int attemptCount, List<AttemptFileResult> results, Duration elapsed) {
+        this.attemptCount = attemptCount;
+        this.results = List.copyOf(results);
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return The number of attempts of the column
+     */
+    public int getAttemptCount() {
+        return attemptCount;
+    }
+
+    /**
+     * @return The result of every file, ordered by user, attempt and file
+     */
+    public List<AttemptFileResult> getResults() {
+        return results;
+    }
+
+    public int count(AttemptFileResult.Status status) {
+        return (int) results.stream().filter(result -> result.getStatus() == status).count();
+    }
+
+    public List<AttemptFileResult> getFailures() {
+        return results.stream().filter(result -> result.getStatus() == AttemptFileResult.Status.FAILED)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The total size of the files on disk
+     */
+    public long getBytes() {
+        return results.stream().mapToLong(AttemptFileResult::getBytes).sum();
+    }
+
+    /**
+     * @return The bytes received in this run
+     */
+    public long getBytesDownloaded() {
+        return results.stream().mapToLong(AttemptFileResult::getBytesDownloaded).sum();
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return Bytes received per second over the whole run
+     */
+    public double getBytesPerSecond() {
+        return perSecond(getBytesDownloaded());
+    }
+
+    /**
+     * @return Files handled per second over the whole run, skipped and failed ones included
+     */
+    public double getFilesPerSecond() {
+        return perSecond(results.size());
+    }
+
+    private double perSecond(double amount) {
+        var seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? amount / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d attempts, %d files (%d downloaded, %d resumed, %d skipped, %d failed), "
+                        + "%d bytes in %d ms, %.1f MB/s, %.1f files/s",
+                attemptCount, results.size(),
+                count(AttemptFileResult.Status.DOWNLOADED), count(AttemptFileResult.Status.RESUMED),
+                count(AttemptFileResult.Status.SKIPPED), count(AttemptFileResult.Status.FAILED),
+                getBytesDownloaded(), elapsed.toMillis(), getBytesPerSecond() / 1e6, getFilesPerSecond());
+    }
+}
@@ -0,0 +1,60 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * What a GradeWriter run did, and how fast.
+ */
+public class GradeWriteReport {
+    private final List<GradeWriteResult> results;
+    private final Duration elapsed;
+
+    GradeWriteReport(List<GradeWriteResult> results, Duration elapsed) {
+        this.results = List.copyOf(results);
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return The result of every grade, in the iteration order of the columns and of the grades per column
+     */
+    public List<GradeWriteResult> getResults() {
+        return results;
+    }
+
+    public int count(GradeWriteResult.Status status) {
+        return (int) results.stream().filter(result -> result.getStatus() == status).count();
+    }
+
+    public List<GradeWriteResult> getFailures() {
+        return results.stream().filter(result -> result.getStatus() == GradeWriteResult.Status.FAILED)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The number of updates sent, retries included
+     */
+    public int getRequestCount() {
+        return results.stream().mapToInt(GradeWriteResult::getAttempts).sum();
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return Grades handled per second over the whole run, unchanged and failed ones included
+     */
+    public double getGradesPerSecond() {
+        var seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? results.size() / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d grades (%d updated, %d unchanged, %d failed), %d requests in %d ms, %.1f grades/s",
+                results.size(), count(GradeWriteResult.Status.UPDATED), count(GradeWriteResult.Status.UNCHANGED),
+                count(GradeWriteResult.Status.FAILED), getRequestCount(), elapsed.toMillis(), getGradesPerSecond());
+    }
+}
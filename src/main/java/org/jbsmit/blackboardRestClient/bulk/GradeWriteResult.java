@@ -0,0 +1,81 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+
+/**
+ * The outcome of one grade of a GradeWriter run.
+ */
+public class GradeWriteResult {
+    public enum Status {
+        /**
+         * The grade was written
+         */
+        UPDATED,
+        /**
+         * The current grade already matched, so nothing was written
+         */
+        UNCHANGED,
+        FAILED
+    }
+
+    private final String columnId;
+    private final String userId;
+    private final Status status;
+    private final GradeV2 grade;
+    private final int attempts;
+    private final RuntimeException exception;
+
+    GradeWriteResult(
+            String columnId,
+            String userId,
+            Status status,
+            GradeV2 grade,
+            int attempts,
+            RuntimeException exception) {
+        this.columnId = columnId;
+        this.userId = userId;
+        this.status = status;
+        this.grade = grade;
+        this.attempts = attempts;
+        this.exception = exception;
+    }
+
+    public String getColumnId() {
+        return columnId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The grade as Blackboard returned it after the update, the current grade when it was unchanged, or null
+     * when the update failed
+     */
+    public GradeV2 getGrade() {
+        return grade;
+    }
+
+    /**
+     * @return How many times the update was sent, which is 0 for an unchanged grade
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return Why the update failed, or null
+     */
+    public RuntimeException getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return status + " " + columnId + "/" + userId + (exception != null ? ": " + exception : "");
+    }
+}
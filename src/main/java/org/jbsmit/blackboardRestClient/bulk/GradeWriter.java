@@ -0,0 +1,246 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.agentsupport.CallPriority;
+import org.jbsmit.blackboardRestClient.agentsupport.HttpStatusException;
+import org.jbsmit.blackboardRestClient.agentsupport.RetryPolicy;
+import org.jbsmit.blackboardRestClient.agentsupport.VirtualThreads;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi.UpdateColumnGradeBody;
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes many grades with CourseGradesApi.updateColumnGrade, e.g. to post the final grades of a course.
+ *
+ * The updates run concurrently, with at most {@link #setConcurrency concurrency} in flight, and as BATCH calls so
+ * they wait for the agent's RequestQuota behind interactive calls. A grade whose update is rate limited or hits a
+ * server error or a dropped connection is sent again, after the Retry-After delay when the server sent one. A grade
+ * that fails doesn't stop the others.
+ *
+ * The current grades of every column are read first, with one paged call per column, and grades that already match
+ * are not written. That makes it cheap to run again after an interruption.
+ */
+public class GradeWriter {
+    private static final Set<Integer> TRANSIENT_CODES = Set.of(429, 500, 502, 503, 504);
+
+    private final BlackboardAgent agent;
+    private int concurrency = 8;
+    private RetryPolicy retryPolicy = RetryPolicy.create();
+    private boolean skipUnchanged = true;
+
+    private GradeWriter(BlackboardAgent agent) {
+        this.agent = agent;
+    }
+
+    public static GradeWriter create(BlackboardAgent agent) {
+        return new GradeWriter(agent);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Maximum number of updates in flight at the same time. Defaults to 8.
+     */
+    public GradeWriter setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * How often and after what delay a grade whose update failed transiently is sent again. PATCH isn't retried by
+     * the agent itself, as it isn't idempotent in general, but writing the same grade twice is harmless. Use
+     * {@link RetryPolicy#none()} to report failures immediately.
+     */
+    public GradeWriter setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    /**
+     * Whether grades that already match are left alone. On by default; turn it off to save the reads when most
+     * grades are new.
+     */
+    public GradeWriter setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+        return this;
+    }
+
+    /**
+     * Write the grades of one column
+     *
+     * @see #write(String, Map)
+     */
+    public GradeWriteReport write(String courseId, String columnId, Map<String, UpdateColumnGradeBody> grades) {
+        return write(courseId, Map.of(columnId, grades));
+    }
+
+    /**
+     * Write the grades of one or more columns
+     *
+     * @param courseId The id of the course
+     * @param grades The updates per user id, per column id
+     * @return The result of every grade
+     */
+    public GradeWriteReport write(String courseId, Map<String, Map<String, UpdateColumnGradeBody>> grades) {
+        var start = System.nanoTime();
+        var permits = new Semaphore(concurrency);
+        var executor = VirtualThreads.newThreadPerTaskExecutor("blackboard-grade-writer-%d");
+        try {
+            var columnFutures = new ArrayList<CompletableFuture<List<GradeWriteResult>>>(grades.size());
+            for (var column : grades.entrySet()) {
+                columnFutures.add(writeColumn(courseId, column.getKey(), column.getValue(), permits, executor));
+            }
+
+            var results = new ArrayList<GradeWriteResult>();
+            for (var future : columnFutures) {
+                results.addAll(future.join());
+            }
+            return new GradeWriteReport(results, Duration.ofNanos(System.nanoTime() - start));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private CompletableFuture<List<GradeWriteResult>> writeColumn(
+            String courseId,
+            String columnId,
+            Map<String, UpdateColumnGradeBody> grades,
+            Semaphore permits,
+            ExecutorService executor) {
+        var current = skipUnchanged
+                ? CompletableFuture.supplyAsync(() -> currentGrades(courseId, columnId, permits), executor)
+                : CompletableFuture.completedFuture(Map.<String, GradeV2>of());
+        return current.handle((currentGrades, e) -> {
+            var rowFutures = new ArrayList<CompletableFuture<GradeWriteResult>>(grades.size());
+            for (var row : grades.entrySet()) {
+                var userId = row.getKey();
+                if (e != null) {
+                    rowFutures.add(CompletableFuture.completedFuture(new GradeWriteResult(
+                            columnId, userId, GradeWriteResult.Status.FAILED, null, 0, unwrap(e))));
+                    continue;
+                }
+                var currentGrade = currentGrades.get(userId);
+                if (currentGrade != null && matches(currentGrade, row.getValue())) {
+                    rowFutures.add(CompletableFuture.completedFuture(new GradeWriteResult(
+                            columnId, userId, GradeWriteResult.Status.UNCHANGED, currentGrade, 0, null)));
+                    continue;
+                }
+                rowFutures.add(CompletableFuture.supplyAsync(
+                        () -> writeGrade(courseId, columnId, userId, row.getValue(), permits), executor));
+            }
+            return rowFutures;
+        }).thenCompose(rowFutures -> CompletableFuture
+                .allOf(rowFutures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    var results = new ArrayList<GradeWriteResult>(rowFutures.size());
+                    for (var future : rowFutures) {
+                        results.add(future.join());
+                    }
+                    return results;
+                }));
+    }
+
+    private Map<String, GradeV2> currentGrades(String courseId, String columnId, Semaphore permits) {
+        permits.acquireUninterruptibly();
+        try {
+            var restCall = CourseGradesApi.getColumnGrades(courseId, columnId);
+            restCall.setPriority(CallPriority.BATCH);
+            var byUser = new HashMap<String, GradeV2>();
+            for (var grade : agent.run(restCall)) {
+                byUser.put(grade.getUserId(), grade);
+            }
+            return byUser;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private GradeWriteResult writeGrade(
+            String courseId,
+            String columnId,
+            String userId,
+            UpdateColumnGradeBody update,
+            Semaphore permits) {
+        Duration retryAfter = null;
+        for (int attempt = 0; ; attempt++) {
+            permits.acquireUninterruptibly();
+            try {
+                var restCall = CourseGradesApi.updateColumnGrade(courseId, columnId, userId, update);
+                restCall.setPriority(CallPriority.BATCH);
+                var grade = agent.run(restCall);
+                return new GradeWriteResult(columnId, userId, GradeWriteResult.Status.UPDATED, grade, attempt + 1, null);
+            } catch (RuntimeException e) {
+                if (attempt >= retryPolicy.getMaxRetries() || !isTransient(e)) {
+                    return new GradeWriteResult(columnId, userId, GradeWriteResult.Status.FAILED, null, attempt + 1, e);
+                }
+                retryAfter = e instanceof HttpStatusException ? ((HttpStatusException) e).getRetryAfter() : null;
+            } finally {
+                permits.release();
+            }
+
+            try {
+                Thread.sleep(retryPolicy.getBackoff(attempt, retryAfter).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new GradeWriteResult(columnId, userId, GradeWriteResult.Status.FAILED, null, attempt + 1,
+                        new IllegalStateException("Interrupted while waiting to retry", e));
+            }
+        }
+    }
+
+    /**
+     * @return true if writing update would not change grade. Properties the update leaves out are not compared.
+     */
+    static boolean matches(GradeV2 grade, UpdateColumnGradeBody update) {
+        if (update.getScore() != null
+                && (grade.getScore() == null || grade.getScore().compareTo(update.getScore()) != 0)) {
+            return false;
+        }
+        return (update.getText() == null || update.getText().equals(grade.getText()))
+                && (update.getNotes() == null || update.getNotes().equals(grade.getNotes()))
+                && (update.getFeedback() == null || update.getFeedback().equals(grade.getFeedback()))
+                && (update.getGradeNotationId() == null
+                        || update.getGradeNotationId().equals(grade.getGradeNotationId()))
+                && update.getExempt() == grade.getExempt()
+                // Writing a score or text also marks the grade Graded
+                && (update.getScore() == null && update.getText() == null
+                        || grade.getStatus() == GradeV2.Status.Graded);
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        if (e instanceof HttpStatusException) {
+            return TRANSIENT_CODES.contains(((HttpStatusException) e).getStatusCode());
+        }
+        return e.getClass() == RuntimeException.class && e.getCause() instanceof IOException;
+    }
+
+    private static RuntimeException unwrap(Throwable e) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+    }
+}
@@ -0,0 +1,276 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.agentsupport.Fields;
+import org.jbsmit.blackboardRestClient.agentsupport.VirtualThreads;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.model.GradeColumnV2;
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The grades of all columns of a course as a compact users by columns matrix, e.g. to render a gradebook.
+ *
+ * Each cell holds the score, status, exempt flag and change index of one grade in primitive arrays, which takes 17
+ * bytes instead of the hundreds of a GradeV2. Users and columns are addressed by their index in {@link #getUsers()}
+ * and {@link #getColumns()}; both tables map ids to indexes in constant time. Text, notes and feedback are left out;
+ * fetch the GradeV2 for those.
+ *
+ * The snapshot is immutable and doesn't change when the gradebook does.
+ */
+public class GradebookSnapshot {
+    /** The cell has no grade */
+    public static final byte NO_GRADE = 0;
+    public static final byte GRADED = 1;
+    public static final byte NEEDS_GRADING = 2;
+
+    private static final byte EXEMPT = (byte) 0x80;
+    private static final byte STATUS_MASK = 0x7f;
+    private static final Fields<GradeV2> FIELDS =
+            Fields.of(GradeV2.class, "userId", "status", "score", "exempt", "changeIndex");
+
+    private final IdTable users;
+    private final IdTable columns;
+    // Column major: the cell of user u in column c is at c * users.size() + u
+    private final double[] scores;
+    private final long[] changeIndexes;
+    private final byte[] statuses;
+
+    private GradebookSnapshot(IdTable users, IdTable columns, double[] scores, long[] changeIndexes, byte[] statuses) {
+        this.users = users;
+        this.columns = columns;
+        this.scores = scores;
+        this.changeIndexes = changeIndexes;
+        this.statuses = statuses;
+    }
+
+    /**
+     * Fetch the grades of all columns of a course, at most 8 columns at the same time
+     *
+     * @see #fetch(BlackboardAgent, String, int)
+     */
+    public static GradebookSnapshot fetch(BlackboardAgent agent, String courseId) {
+        return fetch(agent, courseId, 8);
+    }
+
+    /**
+     * Fetch the grades of all columns of a course, with at most maxConcurrentCalls columns in flight at the same time
+     *
+     * Only the properties the snapshot keeps are requested, and the grades of a column are compacted as soon as they
+     * arrive, so the GradeV2 objects of only a few columns are in memory at any time.
+     *
+     * @param agent The agent to fetch with
+     * @param courseId The id of the course
+     * @param maxConcurrentCalls Maximum number of columns fetched at the same time
+     * @return The snapshot, with the columns in gradebook order and the users in the order their grades came in
+     * @throws RuntimeException The failure of the first column that could not be fetched
+     */
+    public static GradebookSnapshot fetch(BlackboardAgent agent, String courseId, int maxConcurrentCalls) {
+        var gradeColumns = agent.run(CourseGradesApi.getGradeColumns(courseId));
+        var permits = new Semaphore(maxConcurrentCalls);
+        var executor = VirtualThreads.newThreadPerTaskExecutor("blackboard-gradebook-snapshot-%d");
+        try {
+            var futures = new ArrayList<CompletableFuture<ColumnGrades>>(gradeColumns.size());
+            for (var column : gradeColumns) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        var restCall = CourseGradesApi.getColumnGrades(courseId, column.getId());
+                        restCall.setFields(FIELDS);
+                        return new ColumnGrades(agent.run(restCall));
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+            }
+
+            var columnGrades = new ArrayList<ColumnGrades>(futures.size());
+            for (var future : futures) {
+                columnGrades.add(join(future));
+            }
+            return assemble(gradeColumns, columnGrades);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static GradebookSnapshot assemble(List<GradeColumnV2> gradeColumns, List<ColumnGrades> columnGrades) {
+        var userIds = new LinkedHashSet<String>();
+        for (var grades : columnGrades) {
+            userIds.addAll(Arrays.asList(grades.userIds));
+        }
+        var columnIds = new ArrayList<String>(gradeColumns.size());
+        for (var column : gradeColumns) {
+            columnIds.add(column.getId());
+        }
+        var users = new IdTable(new ArrayList<>(userIds));
+        var columns = new IdTable(columnIds);
+
+        var cells = users.size() * columns.size();
+        var scores = new double[cells];
+        var changeIndexes = new long[cells];
+        var statuses = new byte[cells];
+        Arrays.fill(scores, Double.NaN);
+        for (int c = 0; c < columnGrades.size(); c++) {
+            var grades = columnGrades.get(c);
+            for (int i = 0; i < grades.userIds.length; i++) {
+                var cell = c * users.size() + users.indexOf(grades.userIds[i]);
+                scores[cell] = grades.scores[i];
+                changeIndexes[cell] = grades.changeIndexes[i];
+                statuses[cell] = grades.statuses[i];
+            }
+        }
+        return new GradebookSnapshot(users, columns, scores, changeIndexes, statuses);
+    }
+
+    /**
+     * @return The users that have a grade in at least one column
+     */
+    public IdTable getUsers() {
+        return users;
+    }
+
+    public IdTable getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return The score, or NaN when the cell has no grade or its grade has no score
+     */
+    public double getScore(int user, int column) {
+        return scores[cell(user, column)];
+    }
+
+    /**
+     * @return The score of userId in columnId, or NaN when there is none
+     * @throws IllegalArgumentException if the user or the column is not in the snapshot
+     */
+    public double getScore(String userId, String columnId) {
+        return getScore(userIndex(userId), columnIndex(columnId));
+    }
+
+    /**
+     * @return NO_GRADE, GRADED or NEEDS_GRADING
+     */
+    public byte getStatus(int user, int column) {
+        return (byte) (statuses[cell(user, column)] & STATUS_MASK);
+    }
+
+    public byte getStatus(String userId, String columnId) {
+        return getStatus(userIndex(userId), columnIndex(columnId));
+    }
+
+    public boolean isExempt(int user, int column) {
+        return (statuses[cell(user, column)] & EXEMPT) != 0;
+    }
+
+    public boolean isExempt(String userId, String columnId) {
+        return isExempt(userIndex(userId), columnIndex(columnId));
+    }
+
+    /**
+     * @return The change index of the grade, or 0 when the cell has no grade
+     */
+    public long getChangeIndex(int user, int column) {
+        return changeIndexes[cell(user, column)];
+    }
+
+    /**
+     * @return The highest change index in the snapshot, to fetch only the grades that changed since with
+     * GetColumnGradesOption.changeIndex
+     */
+    public long getMaxChangeIndex() {
+        var max = 0L;
+        for (var changeIndex : changeIndexes) {
+            max = Math.max(max, changeIndex);
+        }
+        return max;
+    }
+
+    /**
+     * @return A copy of the scores of a column, indexed by user
+     */
+    public double[] getColumnScores(int column) {
+        if (column < 0 || column >= columns.size()) {
+            throw new IndexOutOfBoundsException("No column " + column);
+        }
+        var from = column * users.size();
+        return Arrays.copyOfRange(scores, from, from + users.size());
+    }
+
+    private int cell(int user, int column) {
+        if (user < 0 || user >= users.size() || column < 0 || column >= columns.size()) {
+            throw new IndexOutOfBoundsException("No cell for user " + user + " and column " + column);
+        }
+        return column * users.size() + user;
+    }
+
+    private int userIndex(String userId) {
+        var index = users.indexOf(userId);
+        if (index == -1) {
+            throw new IllegalArgumentException("User " + userId + " is not in the snapshot");
+        }
+        return index;
+    }
+
+    private int columnIndex(String columnId) {
+        var index = columns.indexOf(columnId);
+        if (index == -1) {
+            throw new IllegalArgumentException("Column " + columnId + " is not in the snapshot");
+        }
+        return index;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * The grades of one column, compacted right after they are fetched.
+     */
+    private static class ColumnGrades {
+        private final String[] userIds;
+        private final double[] scores;
+        private final long[] changeIndexes;
+        private final byte[] statuses;
+
+        ColumnGrades(List<GradeV2> grades) {
+            userIds = new String[grades.size()];
+            scores = new double[grades.size()];
+            changeIndexes = new long[grades.size()];
+            statuses = new byte[grades.size()];
+            for (int i = 0; i < grades.size(); i++) {
+                var grade = grades.get(i);
+                userIds[i] = grade.getUserId();
+                scores[i] = grade.getScore() != null ? grade.getScore().doubleValue() : Double.NaN;
+                changeIndexes[i] = grade.getChangeIndex();
+                var status = status(grade.getStatus());
+                statuses[i] = (byte) (grade.getExempt() ? status | EXEMPT : status);
+            }
+        }
+
+        /**
+         * A missing status, or one this library doesn't know and reads as null, is no grade.
+         */
+        private static byte status(GradeV2.Status status) {
+            if (status == GradeV2.Status.Graded) {
+                return GRADED;
+            }
+            if (status == GradeV2.Status.NeedsGrading) {
+                return NEEDS_GRADING;
+            }
+            return NO_GRADE;
+        }
+    }
+}
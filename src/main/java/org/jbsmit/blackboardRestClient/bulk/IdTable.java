@@ -0,0 +1,44 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable list of distinct ids that maps each id to its index and back in constant time.
+ */
+public class IdTable {
+    private final String[] ids;
+    private final Map<String, Integer> indexes;
+
+    IdTable(List<String> ids) {
+        this.ids = ids.toArray(new String[0]);
+        this.indexes = new HashMap<>(this.ids.length * 4 / 3 + 1);
+        for (int i = 0; i < this.ids.length; i++) {
+            if (indexes.put(this.ids[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate id " + this.ids[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public String get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return The index of id, or -1 if it's not in the table
+     */
+    public int indexOf(String id) {
+        var index = indexes.get(id);
+        return index != null ? index : -1;
+    }
+
+    public List<String> asList() {
+        return Arrays.asList(ids.clone());
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * The resources returned by the Blackboard REST API. Gson type adapters for these classes are generated at compile
+ * time into ModelTypeAdapterFactory, so decoding does not need reflection.
+ */
+@GenerateTypeAdapters
+package org.jbsmit.blackboardRestClient.model;
+
+import org.jbsmit.blackboardRestClient.codegen.GenerateTypeAdapters;
@@ -0,0 +1,130 @@
+package org.jbsmit.blackboardRestClient.referencedata;
+
+import org.jbsmit.blackboardRestClient.agentsupport.RestCall;
+import org.jbsmit.blackboardRestClient.api.CourseCategoriesApi;
+import org.jbsmit.blackboardRestClient.api.CourseGradeNotationsApi;
+import org.jbsmit.blackboardRestClient.api.DataSourcesApi;
+import org.jbsmit.blackboardRestClient.api.RolesApi;
+import org.jbsmit.blackboardRestClient.api.TermsApi;
+import org.jbsmit.blackboardRestClient.model.Category;
+import org.jbsmit.blackboardRestClient.model.CourseRole;
+import org.jbsmit.blackboardRestClient.model.DataSource;
+import org.jbsmit.blackboardRestClient.model.GradeNotation;
+import org.jbsmit.blackboardRestClient.model.InstitutionRole;
+import org.jbsmit.blackboardRestClient.model.SystemRole;
+import org.jbsmit.blackboardRestClient.model.Term;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A kind of reference data that can be kept in a {@link ReferenceDataCache}: how to fetch it, how its items are
+ * identified and how long it may be cached.
+ *
+ * @param <T> The model class of the items
+ */
+public final class ReferenceData<T> {
+    public static final ReferenceData<Term> TERMS = new ReferenceData<>(
+            "terms", false, scope -> TermsApi.getTerms(), Term::getId, Term::getExternalId, Duration.ofHours(1));
+
+    /**
+     * The external id of a course role is its roleId, e.g. Instructor.
+     */
+    public static final ReferenceData<CourseRole> COURSE_ROLES = new ReferenceData<>(
+            "courseRoles", false, scope -> RolesApi.getCourseRoles(), CourseRole::getId, CourseRole::getRoleId,
+            Duration.ofHours(12));
+
+    /**
+     * The external id of an institution role is its roleId.
+     */
+    public static final ReferenceData<InstitutionRole> INSTITUTION_ROLES = new ReferenceData<>(
+            "institutionRoles", false, scope -> RolesApi.getInstitutionRoles(), InstitutionRole::getId,
+            InstitutionRole::getRoleId, Duration.ofHours(12));
+
+    /**
+     * The external id of a system role is its roleId, e.g. SystemAdmin.
+     */
+    public static final ReferenceData<SystemRole> SYSTEM_ROLES = new ReferenceData<>(
+            "systemRoles", false, scope -> RolesApi.getSystemRoles(), SystemRole::getId, SystemRole::getRoleId,
+            Duration.ofHours(12));
+
+    public static final ReferenceData<DataSource> DATA_SOURCES = new ReferenceData<>(
+            "dataSources", false, scope -> DataSourcesApi.getDataSources(), DataSource::getId,
+            DataSource::getExternalId, Duration.ofHours(1));
+
+    /**
+     * The external id of a category is its categoryId.
+     */
+    public static final ReferenceData<Category> COURSE_CATEGORIES = new ReferenceData<>(
+            "courseCategories", false, scope -> CourseCategoriesApi.getCategories("course"), Category::getId,
+            Category::getCategoryId, Duration.ofHours(1));
+
+    /**
+     * The external id of a category is its categoryId.
+     */
+    public static final ReferenceData<Category> ORGANIZATION_CATEGORIES = new ReferenceData<>(
+            "organizationCategories", false, scope -> CourseCategoriesApi.getCategories("organization"),
+            Category::getId, Category::getCategoryId, Duration.ofHours(1));
+
+    /**
+     * The grade notations of a course; the scope is the course id. The external id of a grade notation is its code.
+     */
+    public static final ReferenceData<GradeNotation> GRADE_NOTATIONS = new ReferenceData<>(
+            "gradeNotations", true, CourseGradeNotationsApi::getGradeNotations, GradeNotation::getId,
+            GradeNotation::getCode, Duration.ofMinutes(15));
+
+    private final String name;
+    private final boolean scoped;
+    private final Function<String, RestCall<List<T>>> restCallFactory;
+    private final Function<T, String> idGetter;
+    private final Function<T, String> externalIdGetter;
+    private final Duration defaultTtl;
+
+    private ReferenceData(
+            String name,
+            boolean scoped,
+            Function<String, RestCall<List<T>>> restCallFactory,
+            Function<T, String> idGetter,
+            Function<T, String> externalIdGetter,
+            Duration defaultTtl) {
+        this.name = name;
+        this.scoped = scoped;
+        this.restCallFactory = restCallFactory;
+        this.idGetter = idGetter;
+        this.externalIdGetter = externalIdGetter;
+        this.defaultTtl = defaultTtl;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if this data exists per scope, e.g. per course, so it has to be looked up with a scope
+     */
+    public boolean isScoped() {
+        return scoped;
+    }
+
+    public Duration getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    RestCall<List<T>> createRestCall(String scope) {
+        return restCallFactory.apply(scope);
+    }
+
+    String getId(T item) {
+        return idGetter.apply(item);
+    }
+
+    String getExternalId(T item) {
+        return externalIdGetter.apply(item);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,149 @@
+package org.jbsmit.blackboardRestClient.referencedata;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.agentsupport.VirtualThreads;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Keeps slowly changing reference data, like terms and roles, in memory.
+ *
+ * Every kind of reference data is fetched completely on first use and cached for its TTL. After the TTL the next
+ * lookup still returns the cached data, and starts a refresh in the background. Concurrent lookups of data that
+ * isn't loaded yet wait for a single fetch, and at most one refresh per kind and scope runs at a time. When a refresh
+ * fails the cached data is kept and the next lookup tries again.
+ *
+ * Scoped data is cached for at most {@link #setMaxScopes maxScopes} scopes per kind, e.g. courses, and dropped when it
+ * hasn't been looked up for {@link #setScopeExpiry scopeExpiry}.
+ *
+ * <pre>
+ * var term = agent.getReferenceData().get(ReferenceData.TERMS).findByExternalId("2021-S1");
+ * </pre>
+ */
+public class ReferenceDataCache {
+    private static final String UNSCOPED = "";
+
+    private final BlackboardAgent agent;
+    private final ExecutorService refreshExecutor =
+            VirtualThreads.newThreadPerTaskExecutor("blackboard-reference-data-%d");
+    private final Map<ReferenceData<?>, Duration> ttls = new ConcurrentHashMap<>();
+    private final Map<ReferenceData<?>, LoadingCache<String, ReferenceTable<?>>> caches = new ConcurrentHashMap<>();
+    private volatile long maxScopes = 1000;
+    private volatile Duration scopeExpiry = Duration.ofHours(1);
+
+    public ReferenceDataCache(BlackboardAgent agent) {
+        this.agent = agent;
+    }
+
+    /**
+     * Overrides the TTL of one kind of reference data. Drops what is cached of it.
+     */
+    public ReferenceDataCache setTtl(ReferenceData<?> referenceData, Duration ttl) {
+        ttls.put(referenceData, ttl);
+        caches.remove(referenceData);
+        return this;
+    }
+
+    public Duration getTtl(ReferenceData<?> referenceData) {
+        return ttls.getOrDefault(referenceData, referenceData.getDefaultTtl());
+    }
+
+    public long getMaxScopes() {
+        return maxScopes;
+    }
+
+    /**
+     * Maximum number of scopes cached per kind of scoped reference data; the least recently used are dropped first.
+     * Defaults to 1000. Drops what is cached of scoped data.
+     */
+    public ReferenceDataCache setMaxScopes(long maxScopes) {
+        if (maxScopes < 1) {
+            throw new IllegalArgumentException("maxScopes must be at least 1");
+        }
+        this.maxScopes = maxScopes;
+        caches.keySet().removeIf(ReferenceData::isScoped);
+        return this;
+    }
+
+    public Duration getScopeExpiry() {
+        return scopeExpiry;
+    }
+
+    /**
+     * How long scoped reference data stays cached after its last lookup. Defaults to an hour. Drops what is cached of
+     * scoped data.
+     */
+    public ReferenceDataCache setScopeExpiry(Duration scopeExpiry) {
+        this.scopeExpiry = scopeExpiry;
+        caches.keySet().removeIf(ReferenceData::isScoped);
+        return this;
+    }
+
+    /**
+     * @return All items of an unscoped kind of reference data, fetching them if they aren't cached
+     */
+    public <T> ReferenceTable<T> get(ReferenceData<T> referenceData) {
+        if (referenceData.isScoped()) {
+            throw new IllegalArgumentException(referenceData + " needs a scope");
+        }
+        return load(referenceData, UNSCOPED);
+    }
+
+    /**
+     * @return All items of a scoped kind of reference data, e.g. the grade notations of the course with id scope
+     */
+    public <T> ReferenceTable<T> get(ReferenceData<T> referenceData, String scope) {
+        if (!referenceData.isScoped()) {
+            throw new IllegalArgumentException(referenceData + " isn't scoped");
+        }
+        return load(referenceData, scope);
+    }
+
+    /**
+     * Drops what is cached of one kind of reference data, so the next lookup fetches it again.
+     */
+    public void invalidate(ReferenceData<?> referenceData) {
+        var cache = caches.get(referenceData);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public void invalidateAll() {
+        caches.values().forEach(LoadingCache::invalidateAll);
+    }
+
+    private <T> ReferenceTable<T> load(ReferenceData<T> referenceData, String scope) {
+        var cache = caches.computeIfAbsent(referenceData, this::createCache);
+        try {
+            //noinspection unchecked
+            return (ReferenceTable<T>) cache.getUnchecked(scope);
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <T> LoadingCache<String, ReferenceTable<?>> createCache(ReferenceData<T> referenceData) {
+        var loader = new CacheLoader<String, ReferenceTable<?>>() {
+            @Override
+            public ReferenceTable<?> load(String scope) {
+                return new ReferenceTable<>(referenceData, agent.run(referenceData.createRestCall(scope)));
+            }
+        };
+        var builder = CacheBuilder.newBuilder().refreshAfterWrite(getTtl(referenceData));
+        if (referenceData.isScoped()) {
+            builder.maximumSize(maxScopes).expireAfterAccess(scopeExpiry);
+        }
+        return builder.build(CacheLoader.asyncReloading(loader, refreshExecutor));
+    }
+}
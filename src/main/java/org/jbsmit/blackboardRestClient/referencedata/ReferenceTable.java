@@ -0,0 +1,44 @@
+package org.jbsmit.blackboardRestClient.referencedata;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An immutable snapshot of one kind of reference data, indexed by id and by external id.
+ */
+public class ReferenceTable<T> {
+    private final List<T> items;
+    private final Map<String, T> byId = new HashMap<>();
+    private final Map<String, T> byExternalId = new HashMap<>();
+
+    ReferenceTable(ReferenceData<T> referenceData, List<T> items) {
+        this.items = List.copyOf(items);
+        for (var item : this.items) {
+            var id = referenceData.getId(item);
+            if (id != null) {
+                byId.putIfAbsent(id, item);
+            }
+            var externalId = referenceData.getExternalId(item);
+            if (externalId != null) {
+                byExternalId.putIfAbsent(externalId, item);
+            }
+        }
+    }
+
+    public List<T> getAll() {
+        return items;
+    }
+
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * @see ReferenceData for what the external id of each kind of reference data is
+     */
+    public Optional<T> findByExternalId(String externalId) {
+        return Optional.ofNullable(byExternalId.get(externalId));
+    }
+}
@@ -0,0 +1,132 @@
+package org.jbsmit.blackboardRestClient;
+
+import org.jbsmit.blackboardRestClient.agentsupport.HttpStatusException;
+import org.jbsmit.blackboardRestClient.agentsupport.RestCall;
+import org.jbsmit.blackboardRestClient.api.ContentApi;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.api.CourseMembershipsApi;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.jbsmit.blackboardRestClient.model.User;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the agent against a FakeBlackboard, so unlike the api tests these don't need a Blackboard instance.
+ */
+class BlackboardAgentTest {
+    private FakeBlackboard blackboard;
+    private BlackboardAgent agent;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create()
+                .setPageSize(100)
+                .setRetryAfter(Duration.ofSeconds(1))
+                .withUsers(250)
+                .withCourses(2, 120, 3, 5)
+                .start();
+        agent = new BlackboardAgent(blackboard.createConfig());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testRunFetchesAllPages() {
+        var users = agent.run(UsersApi.getUsers());
+
+        assertEquals(250, users.size());
+        assertEquals(250, users.stream().map(User::getId).distinct().count());
+        assertEquals("user250", users.get(249).getUserName());
+        assertEquals(120, agent.run(CourseMembershipsApi.getCourseMemberships("_1_1")).size());
+        assertEquals(5, agent.run(ContentApi.getContents("_2_1")).size());
+        assertEquals(1, blackboard.getTokenRequestCount());
+    }
+
+    @Test
+    public void testStreamStopsFetchingWhenConsumerIsDone() {
+        var userNames = agent.stream(UsersApi.getUsers())
+                .limit(5)
+                .map(User::getUserName)
+                .collect(Collectors.toList());
+
+        assertEquals(5, userNames.size());
+        assertEquals(2, blackboard.getRequestCount());
+    }
+
+    @Test
+    public void testRunResolvesAlternativeIds() {
+        assertEquals("_42_1", agent.run(UsersApi.getUser("userName:user42")).getId());
+        assertEquals("_42_1", agent.run(UsersApi.getUser("externalId:ext42")).getId());
+    }
+
+    @Test
+    public void testRunRetriesThrottledCalls() {
+        blackboard.throttleNext(1);
+
+        assertEquals(250, agent.run(UsersApi.getUsers()).size());
+        assertEquals(1, blackboard.getThrottledCount());
+    }
+
+    @Test
+    public void testRunAll() {
+        blackboard.setLatency(Duration.ofMillis(20), Duration.ofMillis(20));
+        var restCalls = new ArrayList<RestCall<User>>();
+        for (int i = 1; i <= 20; i++) {
+            restCalls.add(UsersApi.getUser(i == 6 ? "_999_1" : "_" + i + "_1"));
+        }
+
+        var results = agent.runAll(restCalls, 3);
+
+        assertEquals(20, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            assertSame(restCalls.get(i), result.getRestCall());
+            if (i == 5) {
+                assertFalse(result.isSuccess());
+                assertEquals(UnsupportedOperationException.class, result.getException().getClass());
+            } else {
+                assertEquals("_" + (i + 1) + "_1", result.getResult().getId());
+            }
+        }
+        assertTrue(blackboard.getMaxActiveRequests() <= 3, "active: " + blackboard.getMaxActiveRequests());
+    }
+
+    @Test
+    public void testRunThrowsOnServerError() {
+        blackboard.failNext(1);
+
+        var exception = assertThrows(HttpStatusException.class, () -> agent.run(UsersApi.getUser("_1_1")));
+        assertEquals(500, exception.getStatusCode());
+    }
+
+    @Test
+    public void testUpdateColumnGrade() {
+        var userId = agent.run(CourseMembershipsApi.getCourseMemberships("_1_1")).get(0).getUserId();
+
+        agent.run(CourseGradesApi.updateColumnGrade("_1_1", "_2_1", userId,
+                CourseGradesApi.UpdateColumnGradeBody.create()
+                        .setScore(new BigDecimal("87"))
+                        .setNotes("Example Notes")));
+
+        var grade = agent.run(CourseGradesApi.getColumnGrade("_1_1", "_2_1", userId));
+        assertEquals(0, new BigDecimal("87").compareTo(grade.getScore()));
+        assertEquals("Example Notes", grade.getNotes());
+        assertEquals(120, agent.run(CourseGradesApi.getColumnGrades("_1_1", "_2_1")).size());
+    }
+}
@@ -0,0 +1,188 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.common.hash.Hashing;
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.ContentFileAttachmentsApi;
+import org.jbsmit.blackboardRestClient.api.CourseGradeAttemptsApi;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadTest {
+    private final byte[] content = new byte[5 * 1024 * 1024 + 17];
+    private String sha256;
+    private FakeBlackboard blackboard;
+
+    @BeforeEach
+    public void setUp() {
+        new Random(42).nextBytes(content);
+        sha256 = Hashing.sha256().hashBytes(content).toString();
+        blackboard = FakeBlackboard.create()
+                .withAttemptFile("_1_1", "_2_1", "_3_1", "submission.bin", content)
+                .withAttachment("_1_1", "_4_1", "_5_1", "attachment.bin", new byte[] {0, 1, 2, (byte) 0xff})
+                .start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testDownloadToPath(@TempDir Path directory) throws Exception {
+        var agent = new BlackboardAgent(blackboard.createConfig().setResponseCache(ResponseCache.create()));
+        var target = directory.resolve("submission.bin");
+        var progressCalls = new AtomicInteger();
+        var lastProgress = new AtomicLong();
+
+        var result = agent.download(CourseGradeAttemptsApi.download("_1_1", "_2_1", "_3_1"),
+                Download.to(target)
+                        .setExpectedDigest("SHA-256", sha256)
+                        .setProgressListener((written, total) -> {
+                            assertEquals(content.length, total);
+                            progressCalls.incrementAndGet();
+                            lastProgress.set(written);
+                        }));
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(content.length, result.getBytes());
+        assertEquals(sha256, result.getDigest());
+        assertEquals("submission.bin", result.getFileName());
+        assertEquals("application/octet-stream", result.getContentType());
+        assertEquals(content.length, lastProgress.get());
+        assertTrue(progressCalls.get() > 1);
+
+        // Downloads aren't served from the response cache, so the second one is written too
+        var output = new ByteArrayOutputStream();
+        agent.download(ContentFileAttachmentsApi.download("_1_1", "_4_1", "_5_1"), Download.to(output));
+        agent.download(ContentFileAttachmentsApi.download("_1_1", "_4_1", "_5_1"), Download.to(output));
+        assertArrayEquals(new byte[] {0, 1, 2, (byte) 0xff, 0, 1, 2, (byte) 0xff}, output.toByteArray());
+    }
+
+    @Test
+    public void testResumeExisting(@TempDir Path directory) throws Exception {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        var target = directory.resolve("submission.bin");
+        var restCall = CourseGradeAttemptsApi.download("_1_1", "_2_1", "_3_1");
+
+        Files.write(target, Arrays.copyOf(content, 1000));
+        var resumed = agent.download(restCall, Download.to(target).setResumeExisting(true).setDigest("SHA-256"));
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(content.length - 1000, resumed.getBytesDownloaded());
+        assertEquals(sha256, resumed.getDigest());
+
+        var complete = agent.download(restCall, Download.to(target).setResumeExisting(true).setDigest("SHA-256"));
+        assertEquals(0, complete.getBytesDownloaded());
+        assertEquals(content.length, complete.getBytes());
+        assertEquals(sha256, complete.getDigest());
+
+        // A longer file can't be the same one, so it is replaced
+        Files.write(target, new byte[content.length + 10]);
+        var replaced = agent.download(restCall, Download.to(target).setResumeExisting(true));
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(content.length, replaced.getBytesDownloaded());
+    }
+
+    @Test
+    public void testResumeExistingAfterTheFileChanged(@TempDir Path directory) throws Exception {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        var target = directory.resolve("attachment.bin");
+        var restCall = ContentFileAttachmentsApi.download("_1_1", "_4_1", "_5_1");
+        blackboard.withAttachment("_1_1", "_4_1", "_5_1", "attachment.bin", content);
+        blackboard.setFault(FakeBlackboard.Fault.DISCONNECT_DURING_BODY).failNext(1);
+        assertThrows(RuntimeException.class, () -> agent.download(
+                restCall, Download.to(target).setResumeExisting(true).setMaxResumes(0)));
+        assertTrue(Files.size(target) < content.length);
+
+        var changed = new byte[content.length];
+        new Random(43).nextBytes(changed);
+        blackboard.withAttachment("_1_1", "_4_1", "_5_1", "attachment.bin", changed);
+        var result = agent.download(restCall, Download.to(target).setResumeExisting(true));
+
+        assertArrayEquals(changed, Files.readAllBytes(target));
+        assertEquals(content.length, result.getBytesDownloaded());
+        assertFalse(Files.exists(directory.resolve("attachment.bin.validator")));
+    }
+
+    @Test
+    public void testResumeAfterDroppedConnection() {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        blackboard.setFault(FakeBlackboard.Fault.DISCONNECT_DURING_BODY).failNext(2);
+        var output = new ByteArrayOutputStream();
+
+        var result = agent.download(CourseGradeAttemptsApi.download("_1_1", "_2_1", "_3_1"),
+                Download.to(output).setDigest("SHA-256"));
+
+        assertArrayEquals(content, output.toByteArray());
+        assertEquals(sha256, result.getDigest());
+        assertEquals(2, result.getResumeCount());
+        assertEquals(2, blackboard.getFaultCount());
+    }
+
+    @Test
+    public void testResumeWhenTheServerIgnoresTheRange() {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        blackboard.setRangesSupported(false).setFault(FakeBlackboard.Fault.DISCONNECT_DURING_BODY).failNext(1);
+        var output = new ByteArrayOutputStream();
+
+        // The second response is the whole file again, with the same ETag, so the part already written is skipped
+        var result = agent.download(CourseGradeAttemptsApi.download("_1_1", "_2_1", "_3_1"),
+                Download.to(output).setDigest("SHA-256"));
+
+        assertArrayEquals(content, output.toByteArray());
+        assertEquals(sha256, result.getDigest());
+        assertEquals(1, result.getResumeCount());
+    }
+
+    @Test
+    public void testDownloadOutlastsTheCallTimeout() {
+        var agent = new BlackboardAgent(blackboard.createConfig()
+                .setConnectionSettings(ConnectionSettings.create().setCallTimeout(Duration.ofMillis(500))));
+        blackboard.withAttachment("_1_1", "_4_1", "_6_1", "large.bin", new byte[512 * 1024]).setBandwidth(256 * 1024);
+        var output = new ByteArrayOutputStream();
+
+        // Takes about 2 seconds at this rate
+        var result = agent.download(ContentFileAttachmentsApi.download("_1_1", "_4_1", "_6_1"),
+                Download.to(output).setMaxResumes(0));
+
+        assertEquals(512 * 1024, output.size());
+        assertEquals(0, result.getResumeCount());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxResumes() {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        blackboard.setFault(FakeBlackboard.Fault.DISCONNECT_DURING_BODY).failNext(2);
+
+        assertThrows(RuntimeException.class, () -> agent.download(
+                CourseGradeAttemptsApi.download("_1_1", "_2_1", "_3_1"),
+                Download.to(new ByteArrayOutputStream()).setMaxResumes(1)));
+    }
+
+    @Test
+    public void testChecksumMismatch() {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+
+        var exception = assertThrows(DownloadChecksumException.class, () -> agent.download(
+                CourseGradeAttemptsApi.download("_1_1", "_2_1", "_3_1"),
+                Download.to(new ByteArrayOutputStream()).setExpectedDigest("SHA-256", "00")));
+        assertEquals(sha256, exception.getActual());
+    }
+}
@@ -0,0 +1,79 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.jbsmit.blackboardRestClient.model.CourseV2;
+import org.jbsmit.blackboardRestClient.model.User;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FieldsTest {
+    private FakeBlackboard blackboard;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create().withUsers(1000).start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testProjectedListMovesFewerBytes() {
+        var full = InMemoryInstrumentation.create();
+        new BlackboardAgent(blackboard.createConfig().setInstrumentation(full)).run(UsersApi.getUsers());
+
+        var projected = InMemoryInstrumentation.create();
+        var restCall = UsersApi.getUsers();
+        restCall.setFields(Fields.of(User.class, "id", "userName", "externalId"));
+        var users = new BlackboardAgent(blackboard.createConfig().setInstrumentation(projected)).run(restCall);
+
+        assertEquals(1000, users.size());
+        assertEquals("user1000", users.get(999).getUserName());
+        assertEquals("ext1000", users.get(999).getExternalId());
+        assertNull(users.get(999).getName());
+        assertNull(users.get(999).getCreated());
+        var fullBytes = usersBytesIn(full);
+        var projectedBytes = usersBytesIn(projected);
+        assertTrue(projectedBytes * 4 < fullBytes, projectedBytes + " of " + fullBytes + " bytes");
+    }
+
+    @Test
+    public void testNestedField() {
+        var restCall = UsersApi.getUser("_7_1");
+        restCall.setFields(Fields.of(User.class, "id", "name.given"));
+        var user = new BlackboardAgent(blackboard.createConfig()).run(restCall);
+
+        assertEquals("_7_1", user.getId());
+        assertEquals("Given7", user.getName().getGiven());
+        assertNull(user.getName().getFamily());
+        assertNull(user.getUserName());
+    }
+
+    @Test
+    public void testFieldsAreChecked() {
+        assertThrows(IllegalArgumentException.class, () -> Fields.of(User.class, "userName", "nickName"));
+        assertThrows(IllegalArgumentException.class, () -> Fields.of(User.class, "name.nickName"));
+        assertEquals("name.given,contact.email", Fields.of(User.class, "name.given", "contact.email").toString());
+
+        var restCall = UsersApi.getUsers();
+        assertThrows(IllegalArgumentException.class, () -> restCall.setFields(Fields.of(CourseV2.class, "id")));
+    }
+
+    private static long usersBytesIn(InMemoryInstrumentation instrumentation) {
+        return instrumentation.snapshot().stream()
+                .filter(metrics -> metrics.getUrlTemplate().endsWith("/v1/users"))
+                .findFirst()
+                .orElseThrow()
+                .getBytesIn();
+    }
+}
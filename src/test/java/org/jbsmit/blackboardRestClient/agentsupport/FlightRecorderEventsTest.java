@@ -0,0 +1,63 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightRecorderEventsTest {
+    @Test
+    public void testEventsAreRecorded() throws IOException {
+        var file = Files.createTempFile("blackboard", ".jfr");
+        try (var recording = new Recording();
+             var blackboard = FakeBlackboard.create().withUsers(250).start()) {
+            recording.enable(RestCallEvent.class);
+            recording.enable(PageEvent.class);
+            recording.enable(TokenRenewalEvent.class);
+            recording.start();
+
+            var agent = new BlackboardAgent(blackboard.createConfig());
+            blackboard.throttleNext(1);
+            agent.run(UsersApi.getUsers());
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        var tokenRenewals = ofType(events, "org.jbsmit.blackboardRestClient.TokenRenewal");
+        assertEquals(1, tokenRenewals.size());
+        assertTrue(tokenRenewals.get(0).getBoolean("succeeded"));
+
+        var restCalls = ofType(events, "org.jbsmit.blackboardRestClient.RestCall").stream()
+                .filter(event -> event.getString("urlTemplate").equals("/learn/api/public/v1/users"))
+                .collect(Collectors.toList());
+        assertEquals(4, restCalls.size());
+        assertEquals(1, restCalls.stream().filter(event -> event.getInt("statusCode") == 429).count());
+        assertEquals(1, restCalls.stream().filter(event -> event.getInt("attempt") == 1).count());
+
+        var pages = ofType(events, "org.jbsmit.blackboardRestClient.Page");
+        assertEquals(List.of(0, 1, 2), pages.stream().map(event -> event.getInt("pageIndex")).sorted()
+                .collect(Collectors.toList()));
+        assertEquals(250, pages.stream().mapToInt(event -> event.getInt("itemCount")).sum());
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,104 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.api.CoursesApi;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientTest {
+    private FakeBlackboard blackboard;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create().withUsers(1).withCourses(1, 1, 1, 0).start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testRunAsyncReportsRequestFailuresThroughTheFuture() {
+        var httpClient = new HttpClient(blackboard.createConfig());
+        var restCall = CoursesApi.getCourse("_1_1");
+        // OkHttp refuses header values with line breaks when the request is built
+        restCall.addHeader("X-Broken", "line\nbreak");
+
+        var future = httpClient.runAsync(restCall);
+
+        var exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals(IllegalArgumentException.class, exception.getCause().getClass());
+    }
+
+    @Test
+    public void testRunAsyncRetriesThrottledCall() throws Exception {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        agent.run(CoursesApi.getCourse("_1_1"));
+        blackboard.throttleNext(1);
+
+        var course = agent.runAsync(CoursesApi.getCourse("_1_1")).get(10, TimeUnit.SECONDS);
+
+        assertEquals("_1_1", course.getId());
+        assertEquals(1, blackboard.getThrottledCount());
+    }
+
+    @Test
+    public void testAgentsShareConnectionsOnlyWithTheSameLimits() throws Exception {
+        blackboard.setLatency(Duration.ofMillis(200), Duration.ZERO);
+        var oneAtATime = new BlackboardAgent(blackboard.createConfig().setConnectionSettings(
+                ConnectionSettings.create().setShareConnectionPool(true).setMaxRequestsPerHost(1)));
+        var alsoOneAtATime = new BlackboardAgent(blackboard.createConfig().setConnectionSettings(
+                ConnectionSettings.create().setShareConnectionPool(true).setMaxRequestsPerHost(1)));
+        // Without coalescing, so the identical calls below are all sent
+        var fourAtATime = new BlackboardAgent(blackboard.createConfig()
+                .setCoalesceRequests(false)
+                .setConnectionSettings(
+                        ConnectionSettings.create().setShareConnectionPool(true).setMaxRequestsPerHost(4)));
+        oneAtATime.run(CoursesApi.getCourse("_1_1"));
+        alsoOneAtATime.run(CoursesApi.getCourse("_1_1"));
+        fourAtATime.run(CoursesApi.getCourse("_1_1"));
+
+        // The first two share one dispatcher, so their calls run one at a time
+        CompletableFuture.allOf(
+                oneAtATime.runAsync(CoursesApi.getCourse("_1_1")),
+                alsoOneAtATime.runAsync(CoursesApi.getCourses())).get(10, TimeUnit.SECONDS);
+        assertEquals(1, blackboard.getMaxActiveRequests());
+
+        // The third has its own, with its own limit
+        var calls = new CompletableFuture<?>[4];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = fourAtATime.runAsync(CoursesApi.getCourse("_1_1"));
+        }
+        CompletableFuture.allOf(calls).get(10, TimeUnit.SECONDS);
+        assertEquals(4, blackboard.getMaxActiveRequests());
+    }
+
+    @Test
+    public void testThrottledCallThatIsNotRetriedSlowsDownTheNextCall() {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        agent.run(CoursesApi.getCourse("_1_1"));
+        blackboard.throttleNext(1);
+
+        // PATCH isn't retried, but the Retry-After of 1 second still pauses the calls that follow
+        var exception = assertThrows(HttpStatusException.class, () -> agent.run(CourseGradesApi.updateColumnGrade(
+                "_1_1", "_1_1", "_1_1", CourseGradesApi.UpdateColumnGradeBody.create().setNotes("Notes"))));
+        assertEquals(429, exception.getStatusCode());
+        var start = System.nanoTime();
+        agent.run(CoursesApi.getCourse("_1_1"));
+
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(900).toNanos());
+    }
+}
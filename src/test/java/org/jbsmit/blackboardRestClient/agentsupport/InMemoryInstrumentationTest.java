@@ -0,0 +1,114 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.ContentFileAttachmentsApi;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryInstrumentationTest {
+    @Test
+    public void testRecordsPerUrlTemplate() {
+        var metrics = InMemoryInstrumentation.create();
+        try (var blackboard = FakeBlackboard.create().withUsers(250).start()) {
+            var agent = new BlackboardAgent(blackboard.createConfig().setInstrumentation(metrics));
+            blackboard.throttleNext(1);
+            agent.run(UsersApi.getUsers());
+            agent.run(UsersApi.getUser("_1_1"));
+            agent.run(UsersApi.getUser("_2_1"));
+        }
+
+        var snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.size());
+
+        var token = snapshot.get(0);
+        assertEquals("/learn/api/public/v1/oauth2/token", token.getUrlTemplate());
+        assertEquals(MethodType.POST, token.getMethod());
+        assertTrue(token.getBytesOut() > 0);
+
+        var users = snapshot.get(1);
+        assertEquals("/learn/api/public/v1/users", users.getUrlTemplate());
+        assertEquals(4, users.getRequestCount());
+        assertEquals(Map.of(200, 3L, 429, 1L), users.getStatusCounts());
+        assertEquals(3, users.getPageCount());
+        assertEquals(250, users.getItemCount());
+        assertEquals(4, users.getLatency().getCount());
+        assertEquals(3, users.getDeserialization().getCount());
+        assertTrue(users.getBytesIn() > 250 * 100);
+
+        var user = snapshot.get(2);
+        assertEquals("/learn/api/public/v1/users/{userId}", user.getUrlTemplate());
+        assertEquals(2, user.getRequestCount());
+        assertEquals(0, user.getPageCount());
+
+        assertTrue(metrics.toJson().contains("\"urlTemplate\": \"/learn/api/public/v1/users/{userId}\""));
+    }
+
+    @Test
+    public void testRecordsRemainingDailyBudget() {
+        var metrics = InMemoryInstrumentation.create();
+        var quota = RequestQuota.create().setDailyBudget(100);
+        try (var blackboard = FakeBlackboard.create().withUsers(10).start()) {
+            var agent = new BlackboardAgent(blackboard.createConfig()
+                    .setInstrumentation(metrics)
+                    .setRequestQuota(quota));
+            assertEquals(Long.MAX_VALUE, metrics.getRemainingDailyBudget());
+            agent.run(UsersApi.getUser("_1_1"));
+            agent.run(UsersApi.getUser("_2_1"));
+        }
+
+        // The token request counts too
+        assertEquals(97, quota.getRemainingDailyBudget());
+        assertEquals(97, metrics.getRemainingDailyBudget());
+        metrics.reset();
+        assertEquals(Long.MAX_VALUE, metrics.getRemainingDailyBudget());
+    }
+
+    @Test
+    public void testBodyFailureIsRecordedOnce() {
+        var metrics = InMemoryInstrumentation.create();
+        try (var blackboard = FakeBlackboard.create()
+                .withAttachment("_1_1", "_2_1", "_3_1", "notes.bin", new byte[256 * 1024])
+                .start()) {
+            var agent = new BlackboardAgent(blackboard.createConfig().setInstrumentation(metrics));
+            blackboard.setFault(FakeBlackboard.Fault.DISCONNECT_DURING_BODY).failNext(1);
+            var result = agent.download(ContentFileAttachmentsApi.download("_1_1", "_2_1", "_3_1"),
+                    Download.to(new ByteArrayOutputStream()));
+            assertEquals(1, result.getResumeCount());
+        }
+
+        // The broken response and the resumed one
+        var download = metrics.snapshot().stream()
+                .filter(endpoint -> endpoint.getUrlTemplate().endsWith("/download"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, download.getRequestCount());
+        assertEquals(2, download.getLatency().getCount());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        var histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(500_500, histogram.getMeanNanos(), 0.001);
+        assertWithinBucket(500_000, histogram.getValueAtPercentile(50));
+        assertWithinBucket(990_000, histogram.getValueAtPercentile(99));
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 16,
+                "expected " + actual + " to be within 1/16th above " + expected);
+    }
+}
@@ -0,0 +1,120 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import com.google.gson.reflect.TypeToken;
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+import org.jbsmit.blackboardRestClient.model.SystemRoleEnum;
+import org.jbsmit.blackboardRestClient.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that the generated type adapters decode the model classes like Gson's reflective adapters do.
+ */
+class JsonDeserializerTest {
+    private static final String USER = "{"
+            + "\"id\":\"_1_1\",\"externalId\":\"ext1\",\"userName\":\"user1\",\"studentId\":null,"
+            + "\"educationLevel\":\"Freshman\",\"gender\":\"NotAGender\","
+            + "\"birthDate\":\"2000-01-31T00:00:00.000Z\",\"created\":\"2020-08-31T06:55:10.871Z\","
+            + "\"institutionRoleIds\":[\"STUDENT\",\"ALUMNI\"],\"systemRoleIds\":[\"User\",\"NotARole\"],"
+            + "\"availability\":{\"available\":\"Yes\"},"
+            + "\"name\":{\"given\":\"Given\",\"family\":\"Family\",\"middle\":null},"
+            + "\"contact\":{\"email\":\"user1@example.edu\"},"
+            + "\"avatar\":{\"viewUrl\":\"https://example.edu/avatar\",\"source\":\"User\"},"
+            + "\"unknownProperty\":{\"nested\":[1,2,3]}"
+            + "}";
+    private static final String GRADES = "{\"results\":["
+            + "{\"userId\":\"_1_1\",\"columnId\":\"_2_1\",\"status\":\"Graded\",\"score\":87.5,\"exempt\":false,"
+            + "\"changeIndex\":1600000001,\"overridden\":\"2021-02-03T04:05:06Z\"},"
+            + "{\"userId\":\"_2_1\",\"columnId\":\"_2_1\",\"status\":\"NeedsGrading\",\"score\":null,\"exempt\":true,"
+            + "\"text\":\"A\",\"displayGrade\":{\"scaleType\":\"Percent\",\"score\":50}},"
+            + "{\"userId\":\"_3_1\",\"columnId\":\"_2_1\"}"
+            + "],\"paging\":{\"nextPage\":\"/learn/api/public/v2/courses/_1_1/gradebook/columns/_2_1/users?offset=3\"}"
+            + "}";
+
+    private final JsonDeserializer generated = new JsonDeserializer(true);
+    private final JsonDeserializer reflective = new JsonDeserializer(false);
+
+    @Test
+    public void testUser() {
+        User user = generated.fromJson(USER, User.class);
+
+        assertSameValue(reflective.fromJson(USER, User.class), user, "user");
+        assertEquals(User.EducationLevel.Freshman, user.getEducationLevel());
+        assertNull(user.getGender());
+        assertNull(user.getStudentId());
+        assertEquals(Arrays.asList(SystemRoleEnum.User, null), user.getSystemRoleIds());
+        assertEquals(List.of("STUDENT", "ALUMNI"), user.getInstitutionRoleIds());
+        assertEquals(Instant.parse("2020-08-31T06:55:10.871Z"), user.getCreated());
+        assertEquals("Family", user.getName().getFamily());
+    }
+
+    @Test
+    public void testPagedList() {
+        var type = new TypeToken<PagedResult<List<GradeV2>>>() { }.getType();
+        PagedResult<List<GradeV2>> page = generated.fromJson(GRADES, type);
+
+        assertSameValue(reflective.fromJson(GRADES, type), page, "page");
+        var grades = page.getResults();
+        assertEquals(3, grades.size());
+        assertEquals(0, new BigDecimal("87.5").compareTo(grades.get(0).getScore()));
+        assertEquals(GradeV2.Status.NeedsGrading, grades.get(1).getStatus());
+        assertNull(grades.get(2).getStatus());
+        assertNull(grades.get(2).getScore());
+    }
+
+    @Test
+    public void testNull() {
+        assertNull(generated.fromJson("null", User.class));
+        assertSameValue(reflective.fromJson("{}", User.class), generated.fromJson("{}", User.class), "user");
+    }
+
+    /**
+     * Compares the fields of this library's classes one by one, as they don't implement equals, and everything else
+     * with equals.
+     */
+    private static void assertSameValue(Object expected, Object actual, String path) {
+        if (expected == null || actual == null) {
+            assertEquals(expected, actual, path);
+            return;
+        }
+        assertEquals(expected.getClass(), actual.getClass(), path);
+        if (expected instanceof List) {
+            var expectedList = (List<?>) expected;
+            var actualList = (List<?>) actual;
+            assertEquals(expectedList.size(), actualList.size(), path);
+            for (int i = 0; i < expectedList.size(); i++) {
+                assertSameValue(expectedList.get(i), actualList.get(i), path + "[" + i + "]");
+            }
+            return;
+        }
+        if (expected.getClass().isEnum() || !expected.getClass().getName().startsWith("org.jbsmit.")) {
+            assertEquals(expected, actual, path);
+            return;
+        }
+        var fields = 0;
+        for (var type = expected.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (var field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    assertSameValue(field.get(expected), field.get(actual), path + "." + field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+                fields++;
+            }
+        }
+        assertFalse(fields == 0, path + " has no fields to compare");
+    }
+}
@@ -0,0 +1,113 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.jbsmit.blackboardRestClient.model.User;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagingTest {
+    private FakeBlackboard blackboard;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create().withUsers(1000).start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testDefaultPageSize() {
+        var agent = new BlackboardAgent(blackboard.createConfig().setDefaultPageSize(500));
+        assertEquals(1000, agent.run(UsersApi.getUsers()).size());
+        assertEquals(2, apiRequestCount());
+
+        var restCall = UsersApi.getUsers();
+        restCall.setPageSize(250);
+        assertEquals(1000, agent.runAsync(restCall).join().size());
+        assertEquals(6, apiRequestCount());
+    }
+
+    @Test
+    public void testResumeFromOffset() {
+        var agent = new BlackboardAgent(blackboard.createConfig().setPageFetchWindow(4));
+        var restCall = UsersApi.getUsers();
+        restCall.setOffset(150);
+
+        var users = agent.run(restCall);
+
+        assertEquals(850, users.size());
+        assertEquals("user151", users.get(0).getUserName());
+        assertEquals("user1000", users.get(849).getUserName());
+    }
+
+    @Test
+    public void testRestCallIsNotChanged() {
+        var agent = new BlackboardAgent(blackboard.createConfig().setDefaultPageSize(300));
+        var restCall = UsersApi.getUsers();
+        var url = restCall.getUrl();
+
+        assertEquals(1000, agent.run(restCall).size());
+        assertEquals(url, restCall.getUrl());
+        assertFalse(restCall.getParameters().containsKey("limit"));
+        assertEquals(1000, agent.run(restCall).size());
+    }
+
+    @Test
+    public void testPrefetchPastTheEndIsCancelled() {
+        // One call at a time, so the prefetched pages past the end are still queued when the last page comes in
+        var agent = new BlackboardAgent(blackboard.createConfig()
+                .setPageFetchWindow(8)
+                .setConnectionSettings(ConnectionSettings.create().setMaxRequestsPerHost(1)));
+        var restCall = UsersApi.getUsers();
+        restCall.setOffset(850);
+
+        assertEquals(150, agent.run(restCall).size());
+
+        // The first two pages, and at most one queued page the dispatcher starts before it's cancelled
+        assertTrue(apiRequestCount() <= 3, "requests: " + apiRequestCount());
+    }
+
+    @Test
+    public void testSplitOverWorkers() {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        var userNames = new HashSet<String>();
+        for (int worker = 0; worker < 4; worker++) {
+            var restCall = UsersApi.getUsers();
+            restCall.setPageSize(125);
+            restCall.setOffset(worker * 250L);
+            userNames.addAll(agent.stream(restCall)
+                    .limit(250)
+                    .map(User::getUserName)
+                    .collect(Collectors.toList()));
+        }
+
+        assertEquals(1000, userNames.size());
+        assertEquals(8, apiRequestCount());
+    }
+
+    @Test
+    public void testOnlyForLists() {
+        var restCall = UsersApi.getUser("_1_1");
+        assertThrows(IllegalArgumentException.class, () -> restCall.setPageSize(10));
+        assertThrows(IllegalArgumentException.class, () -> restCall.setOffset(10));
+        assertThrows(IllegalArgumentException.class, () -> UsersApi.getUsers().setPageSize(0));
+    }
+
+    private long apiRequestCount() {
+        return blackboard.getRequestCount() - blackboard.getTokenRequestCount();
+    }
+}
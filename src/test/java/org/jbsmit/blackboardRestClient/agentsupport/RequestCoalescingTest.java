@@ -0,0 +1,119 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.HttpUrl;
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.CoursesApi;
+import org.jbsmit.blackboardRestClient.model.CourseV2;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestCoalescingTest {
+    private FakeBlackboard blackboard;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create().withCourses(1, 0, 0, 0).start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testConcurrentGetsShareOneRequest() {
+        var agent = new BlackboardAgent(blackboard.createConfig().setCoalesceRequests(true));
+        agent.run(CoursesApi.getCourse("_1_1"));
+        blackboard.setLatency(Duration.ofMillis(100), Duration.ZERO);
+        var requestCount = blackboard.getRequestCount();
+
+        var courses = concurrently(20, () -> agent.run(CoursesApi.getCourse("_1_1")));
+        for (var course : courses) {
+            assertSame(courses.get(0), course);
+        }
+        assertEquals(requestCount + 1, blackboard.getRequestCount());
+
+        courses = concurrently(20, () -> agent.runAsync(CoursesApi.getCourse("_1_1")).join());
+        for (var course : courses) {
+            assertSame(courses.get(0), course);
+        }
+        assertEquals(requestCount + 2, blackboard.getRequestCount());
+    }
+
+    @Test
+    public void testNotCoalescedByDefault() {
+        var agent = new BlackboardAgent(blackboard.createConfig());
+        agent.run(CoursesApi.getCourse("_1_1"));
+        blackboard.setLatency(Duration.ofMillis(100), Duration.ZERO);
+        var requestCount = blackboard.getRequestCount();
+
+        concurrently(10, () -> agent.run(CoursesApi.getCourse("_1_1")));
+
+        assertEquals(requestCount + 10, blackboard.getRequestCount());
+    }
+
+    @Test
+    public void testFailureIsShared() {
+        var agent = new BlackboardAgent(blackboard.createConfig()
+                .setCoalesceRequests(true)
+                .setRetryPolicy(RetryPolicy.none()));
+        agent.run(CoursesApi.getCourse("_1_1"));
+        blackboard.setLatency(Duration.ofMillis(100), Duration.ZERO).failNext(1);
+
+        var exception = assertThrows(CompletionException.class,
+                () -> concurrently(5, () -> agent.run(CoursesApi.getCourse("_1_1"))));
+        assertEquals(HttpStatusException.class, exception.getCause().getClass());
+        assertEquals(1, blackboard.getFaultCount());
+
+        assertEquals("_1_1", agent.run(CoursesApi.getCourse("_1_1")).getId());
+    }
+
+    @Test
+    public void testLeaderThatFailsSynchronouslyIsRemoved() throws Exception {
+        var inFlight = new InFlightRequests(true);
+        var key = new InFlightRequests.Key(HttpUrl.get(blackboard.getUrl()), "Bearer token", String.class,
+                ResponseBodyReader.class);
+
+        assertThrows(IllegalStateException.class, () -> inFlight.<String>runAsync(key, () -> {
+            throw new IllegalStateException("Could not build the request");
+        }));
+        assertEquals("second", inFlight.runAsync(key, () -> CompletableFuture.completedFuture("second"))
+                .get(5, TimeUnit.SECONDS));
+
+        assertThrows(AssertionError.class, () -> inFlight.<String>run(key, () -> {
+            throw new AssertionError("Not a RuntimeException");
+        }));
+        assertEquals("third", inFlight.run(key, () -> "third"));
+    }
+
+    private static List<CourseV2> concurrently(int callers, Supplier<CourseV2> call) {
+        var start = new CountDownLatch(callers);
+        var futures = new ArrayList<CompletableFuture<CourseV2>>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                start.countDown();
+                return call.get();
+            }, runnable -> new Thread(runnable).start()));
+        }
+        var results = new ArrayList<CourseV2>();
+        for (var future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,128 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestQuotaTest {
+    @Test
+    public void testInteractiveCallsGoFirst() throws Exception {
+        var quota = RequestQuota.create().setRequestsPerSecond(5);
+        quota.acquire(CallPriority.BATCH);
+        var order = new ConcurrentLinkedQueue<CallPriority>();
+
+        // Both have to wait for the next slot, 200 ms after the first call; the batch call waits longest
+        var batch = CompletableFuture.runAsync(() -> {
+            quota.acquire(CallPriority.BATCH);
+            order.add(CallPriority.BATCH);
+        });
+        Thread.sleep(50);
+        var interactive = CompletableFuture.runAsync(() -> {
+            quota.acquire(CallPriority.INTERACTIVE);
+            order.add(CallPriority.INTERACTIVE);
+        });
+        CompletableFuture.allOf(batch, interactive).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(CallPriority.INTERACTIVE, CallPriority.BATCH), List.copyOf(order));
+    }
+
+    @Test
+    public void testBatchCallsStopAtInteractiveReserve() {
+        var quota = RequestQuota.create().setDailyBudget(3).setInteractiveReserve(1);
+        quota.acquire(CallPriority.BATCH);
+        quota.acquire(CallPriority.BATCH);
+
+        assertThrows(QuotaExceededException.class, () -> quota.acquire(CallPriority.BATCH));
+        quota.acquire(CallPriority.INTERACTIVE);
+        assertThrows(QuotaExceededException.class, () -> quota.acquire(CallPriority.INTERACTIVE));
+        assertEquals(3, quota.getUsedToday());
+        assertEquals(0, quota.getRemainingDailyBudget());
+    }
+
+    @Test
+    public void testRemainingBudgetReportedByBlackboard() {
+        var quota = RequestQuota.create();
+        assertEquals(Long.MAX_VALUE, quota.getRemainingDailyBudget());
+
+        quota.onResponse(response("500"));
+        assertEquals(500, quota.getRemainingDailyBudget());
+
+        // The smaller of what Blackboard reports and what is left of the local budget
+        quota.setDailyBudget(100);
+        quota.acquire(CallPriority.INTERACTIVE);
+        assertEquals(99, quota.getRemainingDailyBudget());
+        quota.onResponse(response("10"));
+        assertEquals(10, quota.getRemainingDailyBudget());
+        quota.onResponse(response("not a number"));
+        assertEquals(10, quota.getRemainingDailyBudget());
+    }
+
+    @Test
+    public void testDayRollsOverInUtc() {
+        // The zone of the clock doesn't matter: in Auckland it's already the next day
+        var clock = new MutableClock(Instant.parse("2026-03-01T23:00:00Z"), ZoneId.of("Pacific/Auckland"));
+        var quota = new RequestQuota(clock).setDailyBudget(2);
+        quota.acquire(CallPriority.BATCH);
+        quota.acquire(CallPriority.BATCH);
+
+        clock.advance(Duration.ofMinutes(59));
+        assertThrows(QuotaExceededException.class, () -> quota.acquire(CallPriority.BATCH));
+
+        clock.advance(Duration.ofMinutes(1));
+        quota.acquire(CallPriority.BATCH);
+        assertEquals(1, quota.getUsedToday());
+        assertEquals(1, quota.getRemainingDailyBudget());
+    }
+
+    private static Response response(String remaining) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("https://blackboard.example.com/learn/api/public/v1/users").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .header("X-Rate-Limit-Remaining", remaining)
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+        private final ZoneId zone;
+        private volatile Instant instant;
+
+        MutableClock(Instant instant, ZoneId zone) {
+            this.instant = instant;
+            this.zone = zone;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new MutableClock(instant, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
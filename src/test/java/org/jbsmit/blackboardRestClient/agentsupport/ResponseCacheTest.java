@@ -0,0 +1,70 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ResponseCacheTest {
+    private FakeBlackboard blackboard;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create().withUsers(150).withCourses(1, 10, 1, 0).start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testNotModifiedReturnsCachedObject() {
+        var responseCache = ResponseCache.create();
+        var agent = new BlackboardAgent(blackboard.createConfig().setResponseCache(responseCache));
+
+        var user = agent.run(UsersApi.getUser("_1_1"));
+        assertSame(user, agent.run(UsersApi.getUser("_1_1")));
+        assertEquals(150, agent.run(UsersApi.getUsers()).size());
+        assertEquals(150, agent.run(UsersApi.getUsers()).size());
+
+        assertEquals(3, blackboard.getNotModifiedCount());
+        assertEquals(3, responseCache.size());
+    }
+
+    @Test
+    public void testWriteInvalidatesResource() {
+        var agent = new BlackboardAgent(blackboard.createConfig().setResponseCache(ResponseCache.create()));
+        var userId = blackboard.getUsers().get(0).get("id").getAsString();
+
+        agent.run(CourseGradesApi.getColumnGrade("_1_1", "_1_1", userId));
+        agent.run(CourseGradesApi.getColumnGrades("_1_1", "_1_1"));
+        agent.run(CourseGradesApi.updateColumnGrade("_1_1", "_1_1", userId,
+                CourseGradesApi.UpdateColumnGradeBody.create().setScore(new BigDecimal("42"))));
+
+        var grade = agent.run(CourseGradesApi.getColumnGrade("_1_1", "_1_1", userId));
+        var grades = agent.run(CourseGradesApi.getColumnGrades("_1_1", "_1_1"));
+
+        assertEquals(0, blackboard.getNotModifiedCount());
+        assertEquals(0, new BigDecimal("42").compareTo(grade.getScore()));
+        assertEquals(0, new BigDecimal("42").compareTo(grades.get(0).getScore()));
+    }
+
+    @Test
+    public void testEntriesLargerThanMaxBytesAreNotKept() {
+        var responseCache = ResponseCache.create().setMaxBytes(64);
+        var agent = new BlackboardAgent(blackboard.createConfig().setResponseCache(responseCache));
+
+        assertNotSame(agent.run(UsersApi.getUser("_1_1")), agent.run(UsersApi.getUser("_1_1")));
+        assertEquals(0, responseCache.size());
+    }
+}
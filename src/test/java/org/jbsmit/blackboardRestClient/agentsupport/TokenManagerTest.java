@@ -0,0 +1,103 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenManagerTest {
+    private final AtomicInteger renewals = new AtomicInteger();
+
+    @Test
+    public void testConcurrentCallersShareOneRenewal() throws Exception {
+        var tokenRequest = new CompletableFuture<Token>();
+        var tokenManager = new TokenManager(() -> {
+            renewals.incrementAndGet();
+            return tokenRequest;
+        }, Duration.ofMinutes(1));
+
+        var callers = 16;
+        var started = new CountDownLatch(callers);
+        var executor = Executors.newFixedThreadPool(callers / 2);
+        try {
+            var tokens = new ArrayList<CompletableFuture<String>>();
+            for (int i = 0; i < callers; i++) {
+                if (i % 2 == 0) {
+                    tokens.add(CompletableFuture.supplyAsync(() -> {
+                        started.countDown();
+                        return tokenManager.getToken();
+                    }, executor));
+                } else {
+                    started.countDown();
+                    tokens.add(tokenManager.getTokenAsync());
+                }
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // Give the blocking callers time to reach the renewal
+            Thread.sleep(100);
+            for (var token : tokens) {
+                assertFalse(token.isDone());
+            }
+
+            tokenRequest.complete(token("token1", 3600));
+            for (var token : tokens) {
+                assertEquals("token1", token.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, renewals.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTokenInRefreshWindowIsRenewedInBackground() throws Exception {
+        var nextRequest = new CompletableFuture<Token>();
+        var tokenRequests = new ArrayList<CompletableFuture<Token>>();
+        tokenRequests.add(CompletableFuture.completedFuture(token("token1", 2)));
+        tokenRequests.add(nextRequest);
+        var tokenManager = new TokenManager(() -> tokenRequests.get(renewals.getAndIncrement()), Duration.ofMinutes(1));
+        assertEquals("token1", tokenManager.getToken());
+
+        // The skew is capped at half the lifetime, so after a second the token is due for renewal but still valid
+        Thread.sleep(1100);
+        assertEquals("token1", tokenManager.getToken());
+        assertEquals("token1", tokenManager.getTokenAsync().get(0, TimeUnit.SECONDS));
+        assertEquals(2, renewals.get());
+
+        nextRequest.complete(token("token2", 3600));
+        assertEquals("token2", tokenManager.getToken());
+        assertEquals(2, renewals.get());
+    }
+
+    @Test
+    public void testFailedRenewalIsRetried() throws Exception {
+        var tokenManager = new TokenManager(() -> renewals.getAndIncrement() == 0
+                ? CompletableFuture.failedFuture(new HttpStatusException(500, "Internal Server Error"))
+                : CompletableFuture.completedFuture(token("token1", 3600)), Duration.ofMinutes(1));
+
+        var exception = assertThrows(HttpStatusException.class, tokenManager::getToken);
+        assertEquals(500, exception.getStatusCode());
+        assertTrue(tokenManager.isTokenExpired());
+
+        assertEquals("token1", tokenManager.getTokenAsync().get(5, TimeUnit.SECONDS));
+        assertEquals(2, renewals.get());
+    }
+
+    private static Token token(String accessToken, int expiresIn) {
+        var token = new Token();
+        token.setAccess_token(accessToken);
+        token.setToken_type("bearer");
+        token.setExpires_in(expiresIn);
+        return token;
+    }
+}
@@ -0,0 +1,100 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.UploadsApi;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadTest {
+    private FakeBlackboard blackboard;
+    private BlackboardAgent agent;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create().start();
+        agent = new BlackboardAgent(blackboard.createConfig());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testUploadPath(@TempDir Path directory) throws Exception {
+        var content = new byte[3 * 1024 * 1024 + 5];
+        new Random(7).nextBytes(content);
+        var file = Files.write(directory.resolve("video.mp4"), content);
+        var progress = new AtomicLong();
+
+        var uploadedFile = agent.run(UploadsApi.upload(Upload.of(file)
+                .setContentType("video/mp4")
+                .setProgressListener((sent, total) -> {
+                    assertEquals(content.length, total);
+                    progress.set(sent);
+                })));
+
+        assertArrayEquals(content, blackboard.getUpload(uploadedFile.getId()));
+        assertEquals(content.length, progress.get());
+    }
+
+    @Test
+    public void testUploadOutlastsTheCallTimeout() {
+        var agent = new BlackboardAgent(blackboard.createConfig()
+                .setConnectionSettings(ConnectionSettings.create().setCallTimeout(Duration.ofMillis(500))));
+        var content = new byte[512 * 1024];
+        blackboard.setBandwidth(256 * 1024);
+
+        // Takes about 2 seconds at this rate
+        var uploadedFile = agent.run(UploadsApi.upload(
+                Upload.of(new ByteArrayInputStream(content), "large.bin", content.length)));
+
+        assertArrayEquals(content, blackboard.getUpload(uploadedFile.getId()));
+    }
+
+    @Test
+    public void testUploadInputStream() {
+        var content = "Hello, Learn".getBytes(StandardCharsets.UTF_8);
+
+        var uploadedFile = agent.run(UploadsApi.upload(
+                Upload.of(new ByteArrayInputStream(content), "hello.txt", -1).setContentType("text/plain")));
+
+        assertArrayEquals(content, blackboard.getUpload(uploadedFile.getId()));
+    }
+
+    @Test
+    public void testUploadAll(@TempDir Path directory) throws Exception {
+        var uploads = new ArrayList<Upload>();
+        for (int i = 0; i < 20; i++) {
+            var file = Files.writeString(directory.resolve("file" + i + ".txt"), "file " + i);
+            uploads.add(Upload.of(file));
+        }
+
+        var results = agent.uploadAll(uploads, 4);
+
+        var ids = new HashSet<String>();
+        for (int i = 0; i < results.size(); i++) {
+            var id = results.get(i).getResult().getId();
+            assertTrue(ids.add(id));
+            assertEquals("file " + i, new String(blackboard.getUpload(id), StandardCharsets.UTF_8));
+        }
+        assertEquals(20, ids.size());
+    }
+}
@@ -0,0 +1,29 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadsTest {
+    @Test
+    public void testThreadPerTaskExecutor() throws Exception {
+        var executor = VirtualThreads.newThreadPerTaskExecutor("blackboard-test-%d");
+        try {
+            var thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            if (VirtualThreads.isAvailable()) {
+                // Virtual threads are unnamed
+                assertEquals("", thread.getName());
+            } else {
+                // Before Java 21: pooled platform threads that don't keep the JVM alive
+                assertEquals("blackboard-test-0", thread.getName());
+                assertTrue(thread.isDaemon());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
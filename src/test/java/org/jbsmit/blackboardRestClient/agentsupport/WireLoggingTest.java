@@ -0,0 +1,44 @@
+package org.jbsmit.blackboardRestClient.agentsupport;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.jbsmit.blackboardRestClient.api.UsersApi;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireLoggingTest {
+    @Test
+    public void testTruncatesOnlyLongerBodies() throws Exception {
+        var messages = new ArrayList<String>();
+        var wireLogging = WireLogging.create()
+                .setLevel(WireLogging.LogLevel.BODY)
+                .setMaxBodyLength(5)
+                .setLogger(messages::add);
+
+        // Without a Content-Length, like a chunked response
+        wireLogging.log(UsersApi.getUser("_1_1"), response("12345"));
+        wireLogging.log(UsersApi.getUser("_1_1"), response("123456"));
+
+        assertTrue(messages.get(0).endsWith("\n12345"), messages.get(0));
+        assertTrue(messages.get(1).endsWith("\n12345... (truncated)"), messages.get(1));
+        assertEquals(2, messages.size());
+    }
+
+    private static Response response(String body) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("https://blackboard.example.com/learn/api/public/v1/users").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(new Buffer().writeUtf8(body), MediaType.get("text/plain"), -1))
+                .build();
+    }
+}
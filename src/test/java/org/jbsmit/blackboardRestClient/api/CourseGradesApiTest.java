@@ -2,7 +2,6 @@ package org.jbsmit.blackboardRestClient.api;
 
 import nl.rug.learnclient.test.TestContext;
 import org.jbsmit.blackboardRestClient.BlackboardAgent;
-import nl.smit.lib.imspackage.Content;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
@@ -0,0 +1,125 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttemptFileDownloaderTest {
+    private static final int ATTEMPTS = 20;
+
+    private final Map<Path, byte[]> expected = new HashMap<>();
+    private FakeBlackboard blackboard;
+    private long totalBytes;
+
+    @BeforeEach
+    public void setUp() {
+        var random = new Random(7);
+        blackboard = FakeBlackboard.create().setPageSize(7);
+        for (int i = 0; i < ATTEMPTS; i++) {
+            var attemptId = "_" + (100 + i) + "_1";
+            var userId = "_" + (200 + i) + "_1";
+            blackboard.withAttempt("_1_1", "_9_1", attemptId, userId);
+            for (int j = 0; j < 2; j++) {
+                var content = new byte[random.nextInt(200_000)];
+                random.nextBytes(content);
+                // Both files of an attempt have the same name, so the second one gets its id prepended
+                var fileId = "_" + (300 + 2 * i + j) + "_1";
+                blackboard.withAttemptFile("_1_1", attemptId, fileId, "essay.docx", content);
+                expected.put(Path.of(userId, attemptId, j == 0 ? "essay.docx" : fileId + "_essay.docx"), content);
+                totalBytes += content.length;
+            }
+        }
+        blackboard.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testDownloadColumn(@TempDir Path directory) throws Exception {
+        var listened = new AtomicInteger();
+        var downloader = AttemptFileDownloader.create(new BlackboardAgent(blackboard.createConfig()))
+                .setConcurrency(4)
+                .setListener(result -> listened.incrementAndGet());
+
+        var report = downloader.downloadColumn("_1_1", "_9_1", directory);
+
+        assertEquals(ATTEMPTS, report.getAttemptCount());
+        assertEquals(2 * ATTEMPTS, report.count(AttemptFileResult.Status.DOWNLOADED), report.toString());
+        assertEquals(2 * ATTEMPTS, listened.get());
+        assertEquals(totalBytes, report.getBytesDownloaded());
+        assertTrue(report.getBytesPerSecond() > 0);
+        for (var file : expected.entrySet()) {
+            assertArrayEquals(file.getValue(), Files.readAllBytes(directory.resolve(file.getKey())), file.getKey().toString());
+        }
+    }
+
+    @Test
+    public void testFailuresAreReportedPerAttemptAndFile(@TempDir Path directory) {
+        // The second file has no id, so it can't be given a unique name
+        try (var broken = FakeBlackboard.create()
+                .withAttempt("_1_1", "_9_1", "_100_1", "_200_1")
+                .withAttemptFile("_1_1", "_100_1", "_300_1", "essay.docx", new byte[10])
+                .withAttemptFile("_1_1", "_100_1", null, "essay.docx", new byte[10])
+                .withAttempt("_1_1", "_9_1", "_101_1", "_201_1")
+                .withAttemptFile("_1_1", "_101_1", "_301_1", "essay.docx", new byte[10])
+                .withAttemptFile("_1_1", "_101_1", "_302_1", "notes.docx", new byte[10])
+                .start()) {
+            var downloader = AttemptFileDownloader.create(new BlackboardAgent(broken.createConfig()))
+                    .setListener(result -> {
+                        if ("_302_1".equals(result.getAttemptFileId())) {
+                            throw new IllegalStateException("listener failed");
+                        }
+                    });
+
+            var report = downloader.downloadColumn("_1_1", "_9_1", directory);
+
+            assertEquals(1, report.count(AttemptFileResult.Status.DOWNLOADED), report.toString());
+            var failures = report.getFailures();
+            assertEquals(2, failures.size(), report.toString());
+            assertEquals("_100_1", failures.get(0).getAttemptId());
+            assertNull(failures.get(0).getAttemptFileId());
+            assertEquals("_302_1", failures.get(1).getAttemptFileId());
+            assertEquals("listener failed", failures.get(1).getException().getMessage());
+            assertTrue(Files.exists(directory.resolve("_201_1/_101_1/notes.docx")));
+        }
+    }
+
+    @Test
+    public void testRunAgainSkipsAndResumes(@TempDir Path directory) throws Exception {
+        var downloader = AttemptFileDownloader.create(new BlackboardAgent(blackboard.createConfig()));
+        downloader.downloadColumn("_1_1", "_9_1", directory);
+
+        var truncated = directory.resolve("_200_1/_100_1/essay.docx");
+        var content = expected.get(Path.of("_200_1", "_100_1", "essay.docx"));
+        Files.write(truncated, Arrays.copyOf(content, content.length / 2));
+        Files.delete(directory.resolve("_201_1/_101_1/essay.docx"));
+
+        var report = downloader.downloadColumn("_1_1", "_9_1", directory);
+
+        assertEquals(2 * ATTEMPTS - 2, report.count(AttemptFileResult.Status.SKIPPED), report.toString());
+        assertEquals(1, report.count(AttemptFileResult.Status.RESUMED));
+        assertEquals(1, report.count(AttemptFileResult.Status.DOWNLOADED));
+        assertEquals(0, report.count(AttemptFileResult.Status.FAILED));
+        assertEquals(totalBytes, report.getBytes());
+        assertArrayEquals(content, Files.readAllBytes(truncated));
+    }
+}
@@ -0,0 +1,114 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.agentsupport.RetryPolicy;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi.UpdateColumnGradeBody;
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeWriterTest {
+    private FakeBlackboard blackboard;
+    private BlackboardAgent agent;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create()
+                .setPageSize(25)
+                .withUsers(60)
+                .withCourses(1, 60, 2, 0)
+                .start();
+        agent = new BlackboardAgent(blackboard.createConfig());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testWriteSkipsMatchingGrades() {
+        var grades = new LinkedHashMap<String, Map<String, UpdateColumnGradeBody>>();
+        var changed = 0;
+        for (var column : agent.run(CourseGradesApi.getGradeColumns("_1_1"))) {
+            var columnGrades = new LinkedHashMap<String, UpdateColumnGradeBody>();
+            for (var grade : agent.run(CourseGradesApi.getColumnGrades("_1_1", column.getId()))) {
+                // Every third grade is raised by one point, the others are posted as they are
+                var raise = columnGrades.size() % 3 == 0;
+                var score = grade.getScore().add(raise ? BigDecimal.ONE : BigDecimal.ZERO);
+                columnGrades.put(grade.getUserId(), UpdateColumnGradeBody.create().setScore(score));
+                changed += raise ? 1 : 0;
+            }
+            grades.put(column.getId(), columnGrades);
+        }
+        var writer = GradeWriter.create(agent).setConcurrency(4);
+
+        var report = writer.write("_1_1", grades);
+
+        assertEquals(120, report.getResults().size());
+        assertEquals(changed, report.count(GradeWriteResult.Status.UPDATED), report.toString());
+        assertEquals(120 - changed, report.count(GradeWriteResult.Status.UNCHANGED));
+        assertEquals(changed, report.getRequestCount());
+        var first = report.getResults().get(0);
+        assertEquals(GradeWriteResult.Status.UPDATED, first.getStatus());
+        assertEquals(0, grades.get(first.getColumnId()).get(first.getUserId()).getScore()
+                .compareTo(first.getGrade().getScore()));
+
+        var rerun = writer.write("_1_1", grades);
+        assertEquals(120, rerun.count(GradeWriteResult.Status.UNCHANGED), rerun.toString());
+        assertEquals(0, rerun.getRequestCount());
+    }
+
+    @Test
+    public void testRetriesThrottledUpdates() {
+        var column = agent.run(CourseGradesApi.getGradeColumns("_1_1")).get(0);
+        var grades = new LinkedHashMap<String, UpdateColumnGradeBody>();
+        for (var grade : agent.run(CourseGradesApi.getColumnGrades("_1_1", column.getId()))) {
+            grades.put(grade.getUserId(), UpdateColumnGradeBody.create().setScore(BigDecimal.valueOf(42)));
+        }
+        blackboard.throttleNext(5);
+
+        var report = GradeWriter.create(agent)
+                .setSkipUnchanged(false)
+                .setRetryPolicy(RetryPolicy.create().setMaxBackoff(Duration.ofMillis(50)))
+                .write("_1_1", column.getId(), grades);
+
+        assertEquals(60, report.count(GradeWriteResult.Status.UPDATED), report.toString());
+        assertEquals(65, report.getRequestCount());
+        assertTrue(agent.run(CourseGradesApi.getColumnGrades("_1_1", column.getId())).stream()
+                .map(GradeV2::getScore)
+                .allMatch(score -> score.compareTo(BigDecimal.valueOf(42)) == 0));
+
+        var failed = GradeWriter.create(agent)
+                .setRetryPolicy(RetryPolicy.none())
+                .write("_1_1", column.getId(), Map.of("_999_1", UpdateColumnGradeBody.create().setText("A")));
+        assertEquals(1, failed.getFailures().size());
+        assertNotNull(failed.getFailures().get(0).getException());
+    }
+
+    @Test
+    public void testMatches() {
+        var grade = new GradeV2().setStatus(GradeV2.Status.Graded).setScore(new BigDecimal("7.50")).setText("B");
+
+        assertTrue(GradeWriter.matches(grade, UpdateColumnGradeBody.create().setScore(new BigDecimal("7.5"))));
+        assertTrue(GradeWriter.matches(grade, UpdateColumnGradeBody.create().setText("B")));
+        assertFalse(GradeWriter.matches(grade, UpdateColumnGradeBody.create().setScore(BigDecimal.ONE)));
+        assertFalse(GradeWriter.matches(grade, UpdateColumnGradeBody.create().setFeedback("Well done")));
+        assertFalse(GradeWriter.matches(grade, UpdateColumnGradeBody.create().setExempt(true)));
+        assertFalse(GradeWriter.matches(grade.setStatus(GradeV2.Status.NeedsGrading),
+                UpdateColumnGradeBody.create().setScore(new BigDecimal("7.5"))));
+    }
+}
@@ -0,0 +1,110 @@
+package org.jbsmit.blackboardRestClient.bulk;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi;
+import org.jbsmit.blackboardRestClient.api.CourseGradesApi.UpdateColumnGradeBody;
+import org.jbsmit.blackboardRestClient.model.GradeV2;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradebookSnapshotTest {
+    private FakeBlackboard blackboard;
+    private BlackboardAgent agent;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create()
+                .setPageSize(25)
+                .withUsers(80)
+                .withCourses(1, 80, 4, 0)
+                .start();
+        agent = new BlackboardAgent(blackboard.createConfig());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testSnapshotMatchesGrades() {
+        var columns = agent.run(CourseGradesApi.getGradeColumns("_1_1"));
+        var exempted = agent.run(CourseGradesApi.getColumnGrades("_1_1", columns.get(2).getId())).get(5);
+        agent.run(CourseGradesApi.updateColumnGrade("_1_1", columns.get(2).getId(), exempted.getUserId(),
+                UpdateColumnGradeBody.create().setExempt(true)));
+
+        var snapshot = GradebookSnapshot.fetch(agent, "_1_1", 2);
+
+        assertEquals(80, snapshot.getUsers().size());
+        assertEquals(4, snapshot.getColumns().size());
+        var maxChangeIndex = 0L;
+        for (int c = 0; c < columns.size(); c++) {
+            var columnId = columns.get(c).getId();
+            assertEquals(columnId, snapshot.getColumns().get(c));
+            var columnScores = snapshot.getColumnScores(c);
+            for (var grade : agent.run(CourseGradesApi.getColumnGrades("_1_1", columnId))) {
+                var user = snapshot.getUsers().indexOf(grade.getUserId());
+                assertEquals(grade.getScore().doubleValue(), snapshot.getScore(grade.getUserId(), columnId));
+                assertEquals(grade.getScore().doubleValue(), columnScores[user]);
+                assertEquals(GradebookSnapshot.GRADED, snapshot.getStatus(user, c));
+                assertEquals(grade.getExempt(), snapshot.isExempt(user, c));
+                assertEquals(grade.getChangeIndex(), snapshot.getChangeIndex(user, c));
+                maxChangeIndex = Math.max(maxChangeIndex, grade.getChangeIndex());
+            }
+        }
+        assertTrue(snapshot.isExempt(exempted.getUserId(), columns.get(2).getId()));
+        assertFalse(snapshot.isExempt(exempted.getUserId(), columns.get(1).getId()));
+        assertEquals(maxChangeIndex, snapshot.getMaxChangeIndex());
+    }
+
+    @Test
+    public void testStatuses() {
+        var columnId = agent.run(CourseGradesApi.getGradeColumns("_1_1")).get(1).getId();
+        var userIds = agent.run(CourseGradesApi.getColumnGrades("_1_1", columnId)).stream()
+                .map(GradeV2::getUserId)
+                .collect(Collectors.toList());
+        blackboard.withGradeStatus("_1_1", columnId, userIds.get(1), "NeedsGrading")
+                .withGradeStatus("_1_1", columnId, userIds.get(2), null)
+                .withGradeStatus("_1_1", columnId, userIds.get(3), "NotAStatus");
+
+        var snapshot = GradebookSnapshot.fetch(agent, "_1_1");
+
+        assertEquals(GradebookSnapshot.GRADED, snapshot.getStatus(userIds.get(0), columnId));
+        assertEquals(GradebookSnapshot.NEEDS_GRADING, snapshot.getStatus(userIds.get(1), columnId));
+        assertEquals(GradebookSnapshot.NO_GRADE, snapshot.getStatus(userIds.get(2), columnId));
+        assertTrue(Double.isNaN(snapshot.getScore(userIds.get(2), columnId)));
+        assertEquals(GradebookSnapshot.NO_GRADE, snapshot.getStatus(userIds.get(3), columnId));
+    }
+
+    @Test
+    public void testUnknownIds() {
+        var snapshot = GradebookSnapshot.fetch(agent, "_1_1");
+        var columnId = snapshot.getColumns().get(0);
+
+        assertEquals(-1, snapshot.getUsers().indexOf("_0_1"));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getScore("_0_1", columnId));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getScore(snapshot.getUsers().get(0), "_0_1"));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getScore(80, 0));
+    }
+
+    @Test
+    public void testEmptyCells() {
+        blackboard.withCourses(1, 0, 2, 0);
+        var snapshot = GradebookSnapshot.fetch(agent, "_2_1");
+
+        assertEquals(0, snapshot.getUsers().size());
+        assertEquals(2, snapshot.getColumns().size());
+        assertEquals(0, snapshot.getColumnScores(1).length);
+        assertEquals(0, snapshot.getMaxChangeIndex());
+    }
+}
@@ -0,0 +1,122 @@
+package org.jbsmit.blackboardRestClient.referencedata;
+
+import org.jbsmit.blackboardRestClient.BlackboardAgent;
+import org.jbsmit.blackboardRestClient.testing.FakeBlackboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceDataCacheTest {
+    private FakeBlackboard blackboard;
+
+    @BeforeEach
+    public void setUp() {
+        blackboard = FakeBlackboard.create().withTerms(250).withDataSources(3).start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        blackboard.close();
+    }
+
+    @Test
+    public void testLookups() {
+        var referenceData = new BlackboardAgent(blackboard.createConfig()).getReferenceData();
+
+        var terms = referenceData.get(ReferenceData.TERMS);
+        assertEquals(250, terms.getAll().size());
+        assertEquals("Term 200", terms.findById("_200_1").orElseThrow().getName());
+        assertEquals("_7_1", terms.findByExternalId("TERM7").orElseThrow().getId());
+        assertTrue(terms.findByExternalId("TERM251").isEmpty());
+        assertEquals("_2_1", referenceData.get(ReferenceData.DATA_SOURCES).findByExternalId("DS2").orElseThrow().getId());
+        assertThrows(IllegalArgumentException.class, () -> referenceData.get(ReferenceData.GRADE_NOTATIONS));
+    }
+
+    @Test
+    public void testFetchedOnce() {
+        var referenceData = new BlackboardAgent(blackboard.createConfig()).getReferenceData();
+
+        var terms = referenceData.get(ReferenceData.TERMS);
+        var requestCount = apiRequestCount();
+        assertSame(terms, referenceData.get(ReferenceData.TERMS));
+        assertEquals(requestCount, apiRequestCount());
+
+        referenceData.invalidate(ReferenceData.TERMS);
+        referenceData.get(ReferenceData.TERMS);
+        assertEquals(requestCount + 3, apiRequestCount());
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneFetch() throws Exception {
+        blackboard.setLatency(Duration.ofMillis(50), Duration.ZERO);
+        var referenceData = new BlackboardAgent(blackboard.createConfig()).getReferenceData();
+
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<CompletableFuture<ReferenceTable<?>>>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                start.countDown();
+                return referenceData.get(ReferenceData.TERMS);
+            }));
+        }
+        start.await();
+        var first = futures.get(0).get();
+        for (var future : futures) {
+            assertSame(first, future.get());
+        }
+        assertEquals(3, apiRequestCount());
+    }
+
+    @Test
+    public void testRefreshInBackground() throws Exception {
+        var referenceData = new BlackboardAgent(blackboard.createConfig()).getReferenceData()
+                .setTtl(ReferenceData.TERMS, Duration.ofMillis(100));
+
+        var terms = referenceData.get(ReferenceData.TERMS);
+        Thread.sleep(150);
+        blackboard.setLatency(Duration.ofMillis(100), Duration.ZERO);
+        assertSame(terms, referenceData.get(ReferenceData.TERMS));
+
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (referenceData.get(ReferenceData.TERMS) == terms && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(250, referenceData.get(ReferenceData.TERMS).getAll().size());
+        assertTrue(referenceData.get(ReferenceData.TERMS) != terms);
+    }
+
+    @Test
+    public void testScopesAreBounded() throws Exception {
+        var referenceData = new BlackboardAgent(blackboard.createConfig()).getReferenceData().setMaxScopes(2);
+
+        var notations = referenceData.get(ReferenceData.GRADE_NOTATIONS, "_1_1");
+        referenceData.get(ReferenceData.GRADE_NOTATIONS, "_2_1");
+        assertSame(notations, referenceData.get(ReferenceData.GRADE_NOTATIONS, "_1_1"));
+        var requestCount = apiRequestCount();
+
+        // _2_1 is the least recently used
+        referenceData.get(ReferenceData.GRADE_NOTATIONS, "_3_1");
+        assertSame(notations, referenceData.get(ReferenceData.GRADE_NOTATIONS, "_1_1"));
+        referenceData.get(ReferenceData.GRADE_NOTATIONS, "_2_1");
+        assertEquals(requestCount + 2, apiRequestCount());
+
+        referenceData.setScopeExpiry(Duration.ofMillis(100));
+        notations = referenceData.get(ReferenceData.GRADE_NOTATIONS, "_1_1");
+        Thread.sleep(150);
+        assertTrue(referenceData.get(ReferenceData.GRADE_NOTATIONS, "_1_1") != notations);
+    }
+
+    private long apiRequestCount() {
+        return blackboard.getRequestCount() - blackboard.getTokenRequestCount();
+    }
+}
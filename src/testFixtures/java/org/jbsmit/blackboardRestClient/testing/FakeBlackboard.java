@@ -0,0 +1,1045 @@
+package org.jbsmit.blackboardRestClient.testing;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.MultipartReader;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.ByteString;
+import org.jbsmit.blackboardRestClient.agentsupport.BlackboardConfig;
+
+import javax.net.ServerSocketFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-process stand-in for the Learn public REST API, for tests and benchmarks that can't use a real Blackboard.
+ *
+ * It serves the oauth2 token endpoint, users, courses, memberships, gradebook columns and grades, contents, terms and
+ * data sources out of generated data, pages list results with offset and limit and projects them with fields like Learn
+ * does, and can be told to be slow, to throttle with a Retry-After header or to fail. Throttling and faults never hit
+ * the token endpoint. Apart from attachments, the data has to be added before the server is started.
+ *
+ * <pre>
+ * try (var blackboard = FakeBlackboard.create().withUsers(500).withCourses(2, 100, 5, 10).start()) {
+ *     var agent = new BlackboardAgent(blackboard.createConfig());
+ *     ...
+ * }
+ * </pre>
+ */
+public class FakeBlackboard implements AutoCloseable {
+    public static final String KEY = "fake-key";
+    public static final String SECRET = "fake-secret";
+
+    private static final String API = "/learn/api/public";
+    private static final Instant CREATED = Instant.parse("2020-08-31T06:55:10.871Z");
+
+    /**
+     * What a failing request looks like to the client.
+     */
+    public enum Fault {
+        /** A 500 Internal Server Error with a Learn error body. */
+        SERVER_ERROR,
+        /** The connection is closed after the request has been read, without a response. */
+        DISCONNECT,
+        /** The response starts normally, but the connection is closed halfway through its body. */
+        DISCONNECT_DURING_BODY
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<Route> routes = new ArrayList<>();
+
+    private final List<JsonObject> users = new ArrayList<>();
+    private final List<JsonObject> courses = new ArrayList<>();
+    private final List<JsonObject> terms = new ArrayList<>();
+    private final List<JsonObject> dataSources = new ArrayList<>();
+    private final Map<String, List<JsonObject>> memberships = new ConcurrentHashMap<>();
+    private final Map<String, List<JsonObject>> columns = new ConcurrentHashMap<>();
+    private final Map<String, List<JsonObject>> grades = new ConcurrentHashMap<>();
+    private final Map<String, List<JsonObject>> contents = new ConcurrentHashMap<>();
+    private final Map<String, Instant> tokens = new ConcurrentHashMap<>();
+    private final Map<String, List<JsonObject>> attempts = new ConcurrentHashMap<>();
+    private final Map<String, List<JsonObject>> attemptFiles = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final Map<String, String> fileNames = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong changeIndex = new AtomicLong(1_600_000_000L);
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong tokenRequestCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong faultCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong uploadCount = new AtomicLong();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+    private final AtomicInteger throttleNext = new AtomicInteger();
+    private final AtomicInteger failNext = new AtomicInteger();
+
+    private int pageSize = 100;
+    private int maxPageSize = 1000;
+    private Duration latency = Duration.ZERO;
+    private Duration latencyJitter = Duration.ZERO;
+    private long bandwidth = 0;
+    private boolean rangesSupported = true;
+    private double throttleRate = 0;
+    private Duration retryAfter = Duration.ofSeconds(1);
+    private double faultRate = 0;
+    private Fault fault = Fault.SERVER_ERROR;
+    private Duration tokenLifetime = Duration.ofHours(1);
+    private Random random = new Random(42);
+
+    public static FakeBlackboard create() {
+        return new FakeBlackboard();
+    }
+
+    private FakeBlackboard() {
+        route("POST", "/v1/oauth2/token",
+                (request, params) -> isClient(request) ? issueToken() : error(401, "Invalid client credentials"));
+        route("GET", "/v1/users", (request, params) -> page(request, users));
+        route("GET", "/v1/users/{userId}", (request, params) -> one(find(users, params[0])));
+        route("GET", "/v1/users/{userId}/courses", (request, params) -> page(request, userMemberships(params[0])));
+        route("GET", "/v3/courses", (request, params) -> page(request, courses));
+        route("GET", "/v3/courses/{courseId}", (request, params) -> one(find(courses, params[0])));
+        route("GET", "/v1/courses/{courseId}/users", (request, params) -> page(request, of(memberships, params[0])));
+        route("GET", "/v1/courses/{courseId}/users/{userId}",
+                (request, params) -> one(findBy(of(memberships, params[0]), "userId", userId(params[1]))));
+        route("GET", "/v2/courses/{courseId}/gradebook/columns",
+                (request, params) -> page(request, of(columns, params[0])));
+        route("GET", "/v2/courses/{courseId}/gradebook/columns/{columnId}",
+                (request, params) -> one(find(of(columns, params[0]), params[1])));
+        route("GET", "/v2/courses/{courseId}/gradebook/columns/{columnId}/users",
+                (request, params) -> page(request, of(grades, gradesKey(params[0], params[1]))));
+        route("GET", "/v2/courses/{courseId}/gradebook/columns/{columnId}/users/{userId}",
+                (request, params) -> one(
+                        findBy(of(grades, gradesKey(params[0], params[1])), "userId", userId(params[2]))));
+        route("PATCH", "/v2/courses/{courseId}/gradebook/columns/{columnId}/users/{userId}",
+                (request, params) -> updateGrade(request, gradesKey(params[0], params[1]), userId(params[2])));
+        route("GET", "/v2/courses/{courseId}/gradebook/users/{userId}",
+                (request, params) -> page(request, userGrades(params[0], userId(params[1]))));
+        route("GET", "/v1/courses/{courseId}/gradebook/gradeNotations",
+                (request, params) -> page(request, List.of()));
+        route("GET", "/v1/courses/{courseId}/contents", (request, params) -> page(request, of(contents, params[0])));
+        route("GET", "/v1/courses/{courseId}/contents/{contentId}",
+                (request, params) -> one(find(of(contents, params[0]), params[1])));
+        route("GET", "/v2/courses/{courseId}/gradebook/columns/{columnId}/attempts",
+                (request, params) -> page(request, of(attempts, gradesKey(params[0], params[1]))));
+        route("GET", "/v1/courses/{courseId}/gradebook/attempts/{attemptId}/files",
+                (request, params) -> page(request, of(attemptFiles, params[0] + "/" + params[1])));
+        route("GET", "/v1/courses/{courseId}/contents/{contentId}/attachments/{attachmentId}/download",
+                (request, params) -> download(request, String.join("/", params)));
+        route("GET", "/v1/courses/{courseId}/gradebook/attempts/{attemptId}/files/{attemptFileId}/download",
+                (request, params) -> download(request, String.join("/", params)));
+        route("POST", "/v1/uploads", (request, params) -> upload(request));
+        route("GET", "/v1/terms", (request, params) -> page(request, terms));
+        route("GET", "/v1/terms/{termId}", (request, params) -> one(find(terms, params[0])));
+        route("GET", "/v1/dataSources", (request, params) -> page(request, dataSources));
+        route("GET", "/v1/dataSources/{dataSourceId}", (request, params) -> one(find(dataSources, params[0])));
+
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+                try {
+                    // Wait here rather than with a headers delay, so the request counts as active meanwhile
+                    delay();
+                    return FakeBlackboard.this.dispatch(request);
+                } finally {
+                    activeRequests.decrementAndGet();
+                }
+            }
+
+            @Override
+            public MockResponse peek() {
+                // MockWebServer reads request bodies at the rate of the response peek returns
+                return throttle(super.peek());
+            }
+        });
+    }
+
+    /**
+     * Set the number of results per page of requests without a limit. Learn uses 100.
+     */
+    public FakeBlackboard setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Set the largest limit a request may ask for; larger limits are cut down to it. Defaults to 1000.
+     */
+    public FakeBlackboard setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+        return this;
+    }
+
+    /**
+     * Delay every response by latency plus a random amount up to jitter.
+     */
+    public FakeBlackboard setLatency(Duration latency, Duration jitter) {
+        this.latency = latency;
+        this.latencyJitter = jitter;
+        return this;
+    }
+
+    /**
+     * Limit file downloads and request bodies, like those of uploads, to bytesPerSecond. 0, the default, doesn't
+     * limit them.
+     */
+    public FakeBlackboard setBandwidth(long bytesPerSecond) {
+        this.bandwidth = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Whether downloads honor a Range header. Without it they always send the whole file, with a 200. Defaults to
+     * true.
+     */
+    public FakeBlackboard setRangesSupported(boolean rangesSupported) {
+        this.rangesSupported = rangesSupported;
+        return this;
+    }
+
+    /**
+     * Answer this fraction of the requests with 429 Too Many Requests and a Retry-After header.
+     */
+    public FakeBlackboard setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+        return this;
+    }
+
+    /**
+     * Set the Retry-After sent with throttled responses. Defaults to 1 second.
+     */
+    public FakeBlackboard setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Fail this fraction of the requests with the configured fault.
+     */
+    public FakeBlackboard setFaultRate(double faultRate) {
+        this.faultRate = faultRate;
+        return this;
+    }
+
+    public FakeBlackboard setFault(Fault fault) {
+        this.fault = fault;
+        return this;
+    }
+
+    /**
+     * Set the expires_in of issued tokens. Requests with an expired token get 401 Unauthorized.
+     */
+    public FakeBlackboard setTokenLifetime(Duration tokenLifetime) {
+        this.tokenLifetime = tokenLifetime;
+        return this;
+    }
+
+    /**
+     * Seed the random source behind latency jitter and the throttle and fault rates, to make runs repeatable.
+     */
+    public FakeBlackboard setSeed(long seed) {
+        this.random = new Random(seed);
+        return this;
+    }
+
+    /**
+     * Throttle the next count API requests, regardless of the throttle rate.
+     */
+    public FakeBlackboard throttleNext(int count) {
+        throttleNext.addAndGet(count);
+        return this;
+    }
+
+    /**
+     * Fail the next count API requests with the configured fault, regardless of the fault rate.
+     */
+    public FakeBlackboard failNext(int count) {
+        failNext.addAndGet(count);
+        return this;
+    }
+
+    /**
+     * Add count users. They are named user1, user2, ... in the order they're added.
+     */
+    public FakeBlackboard withUsers(int count) {
+        for (int i = 0; i < count; i++) {
+            var n = users.size() + 1;
+            var user = new JsonObject();
+            user.addProperty("id", "_" + n + "_1");
+            user.addProperty("uuid", uuid("user", n));
+            user.addProperty("externalId", "ext" + n);
+            user.addProperty("dataSourceId", "_2_1");
+            user.addProperty("userName", "user" + n);
+            user.addProperty("studentId", String.valueOf(1_000_000 + n));
+            user.addProperty("educationLevel", "Unknown");
+            user.addProperty("created", CREATED.plusSeconds(n).toString());
+            user.addProperty("modified", CREATED.plusSeconds(n).toString());
+            user.add("institutionRoleIds", array("STUDENT"));
+            user.add("systemRoleIds", array("User"));
+            user.add("availability", object("available", "Yes"));
+            var name = new JsonObject();
+            name.addProperty("given", "Given" + n);
+            name.addProperty("family", "Family" + n);
+            user.add("name", name);
+            user.add("contact", object("email", "user" + n + "@example.edu"));
+            users.add(user);
+        }
+        return this;
+    }
+
+    /**
+     * Add count terms. Their external ids are TERM1, TERM2, ... in the order they're added.
+     */
+    public FakeBlackboard withTerms(int count) {
+        for (int i = 0; i < count; i++) {
+            var n = terms.size() + 1;
+            var term = new JsonObject();
+            term.addProperty("id", "_" + n + "_1");
+            term.addProperty("externalId", "TERM" + n);
+            term.addProperty("dataSourceId", "_2_1");
+            term.addProperty("name", "Term " + n);
+            term.add("availability", object("available", "Yes"));
+            terms.add(term);
+        }
+        return this;
+    }
+
+    /**
+     * Add count data sources. Their external ids are DS1, DS2, ... in the order they're added.
+     */
+    public FakeBlackboard withDataSources(int count) {
+        for (int i = 0; i < count; i++) {
+            var n = dataSources.size() + 1;
+            var dataSource = new JsonObject();
+            dataSource.addProperty("id", "_" + n + "_1");
+            dataSource.addProperty("externalId", "DS" + n);
+            dataSource.addProperty("description", "Data source " + n);
+            dataSources.add(dataSource);
+        }
+        return this;
+    }
+
+    /**
+     * Add a file to download as the attachment attachmentId of content item contentId. Unlike other data it can also
+     * be added while the server runs, e.g. to change a file between two downloads.
+     */
+    public FakeBlackboard withAttachment(
+            String courseId,
+            String contentId,
+            String attachmentId,
+            String name,
+            byte[] content) {
+        var key = courseId + "/" + contentId + "/" + attachmentId;
+        files.put(key, content);
+        fileNames.put(key, name);
+        return this;
+    }
+
+    /**
+     * Add a submitted attempt of userId for a gradebook column. Its files are added with withAttemptFile.
+     */
+    public FakeBlackboard withAttempt(String courseId, String columnId, String attemptId, String userId) {
+        var attempt = new JsonObject();
+        attempt.addProperty("id", attemptId);
+        attempt.addProperty("userId", userId);
+        attempt.addProperty("status", "NeedsGrading");
+        attempt.addProperty("created", CREATED.toString());
+        attempts.computeIfAbsent(gradesKey(courseId, columnId), key -> new ArrayList<>()).add(attempt);
+        return this;
+    }
+
+    /**
+     * Add a file to the attempt attemptId, to list and to download.
+     */
+    public FakeBlackboard withAttemptFile(
+            String courseId,
+            String attemptId,
+            String attemptFileId,
+            String name,
+            byte[] content) {
+        var attemptFile = new JsonObject();
+        attemptFile.addProperty("id", attemptFileId);
+        attemptFile.addProperty("name", name);
+        attemptFiles.computeIfAbsent(courseId + "/" + attemptId, key -> new ArrayList<>()).add(attemptFile);
+        var key = courseId + "/" + attemptId + "/" + attemptFileId;
+        files.put(key, content);
+        fileNames.put(key, name);
+        return this;
+    }
+
+    /**
+     * Add count courses. Every course enrolls the next students users as students, round robin over the users added
+     * so far, and gets columns gradebook columns with a grade for every student and contents content items.
+     */
+    public FakeBlackboard withCourses(int count, int students, int columnCount, int contentCount) {
+        var nextStudent = 0;
+        for (int i = 0; i < count; i++) {
+            var n = courses.size() + 1;
+            var courseId = "_" + n + "_1";
+            var course = new JsonObject();
+            course.addProperty("id", courseId);
+            course.addProperty("uuid", uuid("course", n));
+            course.addProperty("externalId", "COURSE" + n);
+            course.addProperty("dataSourceId", "_2_1");
+            course.addProperty("courseId", "COURSE" + n);
+            course.addProperty("name", "Course " + n);
+            course.addProperty("created", CREATED.toString());
+            course.addProperty("organization", false);
+            course.addProperty("ultraStatus", "Classic");
+            course.add("availability", object("available", "Yes"));
+            courses.add(course);
+
+            var courseMemberships = new ArrayList<JsonObject>();
+            for (int s = 0; s < students && !users.isEmpty(); s++) {
+                var userId = users.get(nextStudent++ % users.size()).get("id").getAsString();
+                var membership = new JsonObject();
+                membership.addProperty("id", "_" + (courseMemberships.size() + 1) + "_" + n);
+                membership.addProperty("userId", userId);
+                membership.addProperty("courseId", courseId);
+                membership.addProperty("dataSourceId", "_2_1");
+                membership.addProperty("created", CREATED.toString());
+                membership.addProperty("courseRoleId", "Student");
+                membership.add("availability", object("available", "Yes"));
+                courseMemberships.add(membership);
+            }
+            memberships.put(courseId, courseMemberships);
+
+            var courseColumns = new ArrayList<JsonObject>();
+            for (int c = 1; c <= columnCount; c++) {
+                var columnId = "_" + c + "_" + n;
+                var column = new JsonObject();
+                column.addProperty("id", columnId);
+                column.addProperty("name", "Assignment " + c);
+                column.addProperty("displayName", "Assignment " + c);
+                column.addProperty("externalGrade", false);
+                column.addProperty("created", CREATED.toString());
+                column.add("score", object("possible", 100));
+                column.add("availability", object("available", "Yes"));
+                column.add("grading", object("type", "Manual"));
+                courseColumns.add(column);
+
+                var columnGrades = new ArrayList<JsonObject>();
+                for (var membership : courseMemberships) {
+                    var grade = new JsonObject();
+                    grade.addProperty("userId", membership.get("userId").getAsString());
+                    grade.addProperty("columnId", columnId);
+                    grade.addProperty("status", "Graded");
+                    var score = Math.floorMod(membership.get("userId").hashCode() * 31 + c, 101);
+                    grade.addProperty("text", String.valueOf(score));
+                    grade.addProperty("score", score);
+                    grade.addProperty("exempt", false);
+                    grade.addProperty("corrupt", false);
+                    grade.addProperty("changeIndex", changeIndex.incrementAndGet());
+                    columnGrades.add(grade);
+                }
+                grades.put(gradesKey(courseId, columnId), columnGrades);
+            }
+            columns.put(courseId, courseColumns);
+
+            var courseContents = new ArrayList<JsonObject>();
+            for (int c = 1; c <= contentCount; c++) {
+                var content = new JsonObject();
+                content.addProperty("id", "_" + c + "_" + n);
+                content.addProperty("title", "Content " + c);
+                content.addProperty("body", "<p>Content item " + c + " of course " + n + "</p>");
+                content.addProperty("created", CREATED.toString());
+                content.addProperty("position", c - 1);
+                content.addProperty("hasChildren", false);
+                content.add("availability", object("available", "Yes"));
+                content.add("contentHandler", object("id", "resource/x-bb-document"));
+                courseContents.add(content);
+            }
+            contents.put(courseId, courseContents);
+        }
+        return this;
+    }
+
+    /**
+     * Set the status of the grade of userId in a column added with withCourses, e.g. to NeedsGrading. With null the
+     * status and the score are removed, as for a student who hasn't been graded yet.
+     */
+    public FakeBlackboard withGradeStatus(String courseId, String columnId, String userId, String status) {
+        var columnGrades = of(grades, gradesKey(courseId, columnId));
+        synchronized (columnGrades) {
+            var grade = findBy(columnGrades, "userId", userId);
+            if (grade == null) {
+                throw new IllegalArgumentException("No grade for " + userId + " in " + columnId);
+            }
+            var updated = grade.deepCopy();
+            if (status != null) {
+                updated.addProperty("status", status);
+            } else {
+                updated.remove("status");
+                updated.remove("score");
+                updated.remove("text");
+            }
+            updated.addProperty("changeIndex", changeIndex.incrementAndGet());
+            columnGrades.set(columnGrades.indexOf(grade), updated);
+        }
+        return this;
+    }
+
+    /**
+     * Start serving on a free local port.
+     */
+    public FakeBlackboard start() {
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * @return the url to pass to BlackboardConfig, without a trailing slash
+     */
+    public String getUrl() {
+        var url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    /**
+     * @return a BlackboardConfig pointing to this server with the credentials it accepts
+     */
+    public BlackboardConfig createConfig() {
+        return new BlackboardConfig(getUrl(), KEY + ":" + SECRET);
+    }
+
+    public List<JsonObject> getUsers() {
+        return users;
+    }
+
+    public List<JsonObject> getCourses() {
+        return courses;
+    }
+
+    /**
+     * @return The content of the file uploaded under id, or null
+     */
+    public byte[] getUpload(String id) {
+        return uploads.get(id);
+    }
+
+    /**
+     * @return the number of requests received, including token requests and failed ones
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getTokenRequestCount() {
+        return tokenRequestCount.get();
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    public long getFaultCount() {
+        return faultCount.get();
+    }
+
+    /**
+     * @return the highest number of requests that were being answered at the same time, including their latency
+     */
+    public int getMaxActiveRequests() {
+        return maxActiveRequests.get();
+    }
+
+    /**
+     * @return the number of conditional GETs answered with 304 Not Modified. Every successful GET response carries an
+     * ETag.
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.shutdown();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MockResponse dispatch(RecordedRequest request) {
+        requestCount.incrementAndGet();
+        var url = Objects.requireNonNull(request.getRequestUrl());
+        var path = "/" + String.join("/", url.pathSegments());
+        if (!path.startsWith(API)) {
+            return error(404, "Not found");
+        }
+        path = path.substring(API.length());
+
+        for (var route : routes) {
+            var matcher = route.match(request.getMethod(), path);
+            if (matcher == null) {
+                continue;
+            }
+
+            if (route.isTokenRoute()) {
+                tokenRequestCount.incrementAndGet();
+                return route.handler.handle(request, new String[0]);
+            }
+            if (!isAuthorized(request)) {
+                return error(401, "Bearer token is invalid");
+            }
+            if (isThrottled()) {
+                throttledCount.incrementAndGet();
+                return error(429, "Too many requests")
+                        .setHeader("Retry-After", String.valueOf(Math.max(1, retryAfter.toSeconds())));
+            }
+            var failBody = false;
+            if (isFailed()) {
+                faultCount.incrementAndGet();
+                if (fault == Fault.DISCONNECT) {
+                    return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+                } else if (fault == Fault.SERVER_ERROR) {
+                    return error(500, "Internal server error");
+                }
+                failBody = true;
+            }
+
+            var params = new String[matcher.groupCount()];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = matcher.group(i + 1);
+            }
+            var response = route.handler.handle(request, params);
+            if (request.getMethod().equals("GET")) {
+                response = withETag(request, withFields(request, response));
+            }
+            return failBody ? response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY) : response;
+        }
+        return error(404, "Not found");
+    }
+
+    /**
+     * Keeps only the properties named by the 'fields' query parameter, like Learn does. Dotted names select properties
+     * of nested objects. Of a page only the results are projected.
+     */
+    private MockResponse withFields(RecordedRequest request, MockResponse response) {
+        var fields = Objects.requireNonNull(request.getRequestUrl()).queryParameter("fields");
+        var body = response.getBody();
+        if (fields == null || !response.getStatus().contains(" 200 ") || body == null) {
+            return response;
+        }
+        var paths = List.of(fields.split(","));
+        var json = JsonParser.parseString(body.readUtf8()).getAsJsonObject();
+        if (json.has("results")) {
+            var results = new JsonArray();
+            for (var record : json.getAsJsonArray("results")) {
+                results.add(project(record.getAsJsonObject(), paths));
+            }
+            json.add("results", results);
+        } else {
+            json = project(json, paths);
+        }
+        return response.setBody(json.toString());
+    }
+
+    private static JsonObject project(JsonObject record, List<String> paths) {
+        var projection = new JsonObject();
+        for (var path : paths) {
+            var source = record;
+            var target = projection;
+            var names = path.trim().split("\\.");
+            for (int i = 0; i < names.length - 1 && source != null; i++) {
+                var nested = source.get(names[i]);
+                source = nested != null && nested.isJsonObject() ? nested.getAsJsonObject() : null;
+                if (source != null) {
+                    if (!target.has(names[i])) {
+                        target.add(names[i], new JsonObject());
+                    }
+                    target = target.getAsJsonObject(names[i]);
+                }
+            }
+            var name = names[names.length - 1];
+            if (source != null && source.has(name)) {
+                target.add(name, source.get(name));
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Tags successful responses with a hash of their body, and answers 304 Not Modified when the client already has
+     * that version.
+     */
+    private MockResponse withETag(RecordedRequest request, MockResponse response) {
+        var body = response.getBody();
+        if (!response.getStatus().contains(" 200 ") || body == null) {
+            return response;
+        }
+        var etag = "\"" + body.sha1().hex() + "\"";
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            notModifiedCount.incrementAndGet();
+            return new MockResponse().setResponseCode(304).setHeader("ETag", etag);
+        }
+        return response.setHeader("ETag", etag);
+    }
+
+    private MockResponse issueToken() {
+        var token = UUID.randomUUID().toString();
+        tokens.put(token, Instant.now().plus(tokenLifetime));
+
+        var body = new JsonObject();
+        body.addProperty("access_token", token);
+        body.addProperty("token_type", "bearer");
+        body.addProperty("expires_in", tokenLifetime.toSeconds());
+        return json(200, body);
+    }
+
+    private static boolean isClient(RecordedRequest request) {
+        var credentials = Base64.getEncoder().encodeToString((KEY + ":" + SECRET).getBytes(StandardCharsets.UTF_8));
+        return ("Basic " + credentials).equals(request.getHeader("Authorization"));
+    }
+
+    private boolean isAuthorized(RecordedRequest request) {
+        var authorization = request.getHeader("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        var expiration = tokens.get(authorization.substring("Bearer ".length()));
+        return expiration != null && expiration.isAfter(Instant.now());
+    }
+
+    private boolean isThrottled() {
+        return decrementIfPositive(throttleNext) || (throttleRate > 0 && nextDouble() < throttleRate);
+    }
+
+    private boolean isFailed() {
+        return decrementIfPositive(failNext) || (faultRate > 0 && nextDouble() < faultRate);
+    }
+
+    private static boolean decrementIfPositive(AtomicInteger counter) {
+        return counter.getAndUpdate(count -> Math.max(0, count - 1)) > 0;
+    }
+
+    private synchronized double nextDouble() {
+        return random.nextDouble();
+    }
+
+    private void delay() throws InterruptedException {
+        var delay = latency.toNanos();
+        if (!latencyJitter.isZero()) {
+            delay += (long) (nextDouble() * latencyJitter.toNanos());
+        }
+        if (delay > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+    }
+
+    private MockResponse throttle(MockResponse response) {
+        // Ten slices a second, so the transfer rate is even at the scale of a test
+        return bandwidth > 0
+                ? response.throttleBody(Math.max(1, bandwidth / 10), 100, TimeUnit.MILLISECONDS)
+                : response;
+    }
+
+    private MockResponse page(RecordedRequest request, List<JsonObject> records) {
+        var url = Objects.requireNonNull(request.getRequestUrl());
+        var offset = intParameter(url, "offset", 0);
+        var limit = Math.min(intParameter(url, "limit", pageSize), maxPageSize);
+
+        var results = new JsonArray();
+        synchronized (records) {
+            for (int i = offset; i < Math.min(offset + limit, records.size()); i++) {
+                results.add(records.get(i));
+            }
+        }
+
+        var page = new JsonObject();
+        page.add("results", results);
+        if (offset + limit < records.size()) {
+            var next = url.newBuilder().setQueryParameter("offset", String.valueOf(offset + limit)).build();
+            page.add("paging", object("nextPage", next.encodedPath() + "?" + next.encodedQuery()));
+        }
+        return json(200, page);
+    }
+
+    private static int intParameter(HttpUrl url, String name, int defaultValue) {
+        var value = url.queryParameter(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * Serves a file, or the part a 'Range: bytes=start-' header asks for unless an If-Range header names another
+     * version.
+     */
+    private MockResponse download(RecordedRequest request, String key) {
+        var content = files.get(key);
+        if (content == null) {
+            return error(404, "Not found");
+        }
+        var etag = "\"" + ByteString.of(content).sha1().hex() + "\"";
+        var response = new MockResponse()
+                .setHeader("Content-Type", "application/octet-stream")
+                .setHeader("Content-Disposition", "attachment; filename=\"" + fileNames.get(key) + "\"")
+                .setHeader("ETag", etag);
+
+        var range = request.getHeader("Range");
+        var ifRange = request.getHeader("If-Range");
+        if (rangesSupported && range != null && range.matches("bytes=\\d+-")
+                && (ifRange == null || ifRange.equals(etag))) {
+            var start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            if (start >= content.length) {
+                return error(416, "Range not satisfiable").setHeader("Content-Range", "bytes */" + content.length);
+            }
+            return throttle(response)
+                    .setResponseCode(206)
+                    .setHeader("Content-Range", "bytes " + start + "-" + (content.length - 1) + "/" + content.length)
+                    .setBody(new Buffer().write(content, start, content.length - start));
+        }
+        return throttle(response).setResponseCode(200).setBody(new Buffer().write(content));
+    }
+
+    private static MockResponse one(JsonObject record) {
+        return record == null ? error(404, "Not found") : json(200, record);
+    }
+
+    /**
+     * Keeps the 'file' part of a multipart/form-data upload under a new id.
+     */
+    private MockResponse upload(RecordedRequest request) {
+        var contentType = MediaType.parse(String.valueOf(request.getHeader("Content-Type")));
+        if (contentType == null || contentType.parameter("boundary") == null) {
+            return error(400, "Not a multipart request");
+        }
+        try (var reader = new MultipartReader(request.getBody(), contentType.parameter("boundary"))) {
+            for (var next = reader.nextPart(); next != null; next = reader.nextPart()) {
+                try (var part = next) {
+                    var disposition = String.valueOf(part.headers().get("Content-Disposition"));
+                    if (disposition.contains("name=\"file\"")) {
+                        var id = "_" + uploadCount.incrementAndGet() + "_1";
+                        uploads.put(id, part.body().readByteArray());
+                        var uploadedFile = new JsonObject();
+                        uploadedFile.addProperty("id", id);
+                        return json(201, uploadedFile);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return error(400, "No file part");
+    }
+
+    private MockResponse updateGrade(RecordedRequest request, String gradesKey, String userId) {
+        var columnGrades = of(grades, gradesKey);
+        var update = JsonParser.parseString(request.getBody().readUtf8()).getAsJsonObject();
+        synchronized (columnGrades) {
+            var grade = findBy(columnGrades, "userId", userId);
+            if (grade == null) {
+                return error(404, "Not found");
+            }
+
+            // Records are replaced rather than modified, so pages being written out never see a half applied update.
+            var updated = grade.deepCopy();
+            for (var entry : update.entrySet()) {
+                updated.add(entry.getKey(), entry.getValue());
+            }
+            if (update.has("score") || update.has("text")) {
+                updated.addProperty("status", "Graded");
+            }
+            updated.addProperty("changeIndex", changeIndex.incrementAndGet());
+            columnGrades.set(columnGrades.indexOf(grade), updated);
+            return json(200, updated);
+        }
+    }
+
+    private List<JsonObject> userMemberships(String userId) {
+        var id = userId(userId);
+        var result = new ArrayList<JsonObject>();
+        for (var courseMemberships : memberships.values()) {
+            var membership = findBy(courseMemberships, "userId", id);
+            if (membership != null) {
+                result.add(membership);
+            }
+        }
+        return result;
+    }
+
+    private List<JsonObject> userGrades(String courseId, String userId) {
+        var result = new ArrayList<JsonObject>();
+        for (var column : of(columns, courseId)) {
+            var grade = findBy(of(grades, gradesKey(courseId, column.get("id").getAsString())), "userId", userId);
+            if (grade != null) {
+                result.add(grade);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the "externalId:", "userName:" and "uuid:" forms to the primary id.
+     */
+    private String userId(String userId) {
+        var user = find(users, userId);
+        return user == null ? userId : user.get("id").getAsString();
+    }
+
+    /**
+     * Finds a record by primary id, or by another field when the id has the "field:value" form.
+     */
+    private static JsonObject find(List<JsonObject> records, String id) {
+        var separator = id.indexOf(':');
+        return separator < 0
+                ? findBy(records, "id", id)
+                : findBy(records, id.substring(0, separator), id.substring(separator + 1));
+    }
+
+    private static JsonObject findBy(List<JsonObject> records, String field, String value) {
+        synchronized (records) {
+            for (var record : records) {
+                var recordValue = record.get(field);
+                if (recordValue != null && recordValue.getAsString().equals(value)) {
+                    return record;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<JsonObject> of(Map<String, List<JsonObject>> recordsByKey, String key) {
+        return recordsByKey.getOrDefault(key, List.of());
+    }
+
+    private static String gradesKey(String courseId, String columnId) {
+        return courseId + "/" + columnId;
+    }
+
+    private static MockResponse json(int code, JsonElement body) {
+        return new MockResponse()
+                .setResponseCode(code)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body.toString());
+    }
+
+    private static MockResponse error(int code, String message) {
+        var body = new JsonObject();
+        body.addProperty("status", code);
+        body.addProperty("message", message);
+        return json(code, body);
+    }
+
+    private static JsonObject object(String property, String value) {
+        var object = new JsonObject();
+        object.addProperty(property, value);
+        return object;
+    }
+
+    private static JsonObject object(String property, Number value) {
+        var object = new JsonObject();
+        object.addProperty(property, value);
+        return object;
+    }
+
+    private static JsonArray array(String value) {
+        var array = new JsonArray();
+        array.add(value);
+        return array;
+    }
+
+    private static String uuid(String type, int n) {
+        return UUID.nameUUIDFromBytes((type + n).getBytes()).toString().replace("-", "");
+    }
+
+    private void route(String method, String template, Handler handler) {
+        routes.add(new Route(method, template, handler));
+    }
+
+    /**
+     * MockWebServer leaves Nagle's algorithm on, which combined with delayed ACKs stalls small responses for ~40ms.
+     */
+    private static class NoDelayServerSocketFactory extends ServerSocketFactory {
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    var socket = super.accept();
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private interface Handler {
+        MockResponse handle(RecordedRequest request, String[] pathParameters);
+    }
+
+    private static class Route {
+        private final String method;
+        private final String template;
+        private final Pattern pattern;
+        private final Handler handler;
+
+        Route(String method, String template, Handler handler) {
+            this.method = method;
+            this.template = template;
+            this.pattern = Pattern.compile(template.replaceAll("\\{[^}]+}", "([^/]+)"));
+            this.handler = handler;
+        }
+
+        Matcher match(String method, String path) {
+            if (!this.method.equals(method)) {
+                return null;
+            }
+            var matcher = pattern.matcher(path);
+            return matcher.matches() ? matcher : null;
+        }
+
+        boolean isTokenRoute() {
+            return template.equals("/v1/oauth2/token");
+        }
+    }
+}